@@ -0,0 +1,25 @@
+package com.concurrency.projects.orchestrator;
+
+/**
+ * What JobOrchestrator does with the rest of a run once a job fails.
+ *
+ * 💡 THINK: Like make vs make -k. FAIL_FAST gives the fastest "no" and
+ *   frees the machine at once; CONTINUE_ON_ERROR gives the most complete
+ *   picture of what else is broken, at the cost of finishing the run.
+ */
+public enum FailurePolicy {
+
+    /**
+     * Stop the whole run at the first failure: jobs not yet started never
+     * start, running jobs are interrupted, and executeAll() completes
+     * right away. Their results fail with a CancellationException.
+     */
+    FAIL_FAST,
+
+    /**
+     * Prune only what depends on the failed job: every job downstream of it
+     * fails with the same cause without running (or taking a slot), and
+     * everything else runs to completion.
+     */
+    CONTINUE_ON_ERROR
+}
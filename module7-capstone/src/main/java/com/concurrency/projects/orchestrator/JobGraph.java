@@ -0,0 +1,177 @@
+package com.concurrency.projects.orchestrator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A validated job DAG, compiled to flat arrays.
+ *
+ * Layout for n jobs (job index = position in jobs[]):
+ *   indexOf                              job id → index
+ *   dependents[dependentsStart[i] ..
+ *              dependentsStart[i+1])     indexes of jobs waiting on job i
+ *   dependencies[dependenciesStart[i] ..
+ *                dependenciesStart[i+1]) indexes of jobs job i waits on,
+ *                                        sorted by id (stable cache keys)
+ *   indegree[i]                          number of dependencies of job i
+ *   topologicalOrder                     every index, dependencies first
+ *
+ * 📝 NOTE: Compiling is Kahn's algorithm: start from jobs with indegree 0,
+ *   "finish" them and decrement their dependents. If some job is never
+ *   reached, the leftover jobs contain a cycle. One pass over jobs and
+ *   edges, no recursion - a 100k-deep chain compiles like a flat graph.
+ *
+ * Immutable once compiled; every executeAll() run copies indegree into
+ * its own counters.
+ */
+final class JobGraph {
+
+    final JobOrchestrator.Job[] jobs;
+    final Map<String, Integer> indexOf;
+    final int[] dependentsStart;
+    final int[] dependents;
+    final int[] dependenciesStart;
+    final int[] dependencies;
+    final int[] indegree;
+    final int[] topologicalOrder;
+
+    private JobGraph(JobOrchestrator.Job[] jobs, Map<String, Integer> indexOf,
+                     int[] dependentsStart, int[] dependents,
+                     int[] dependenciesStart, int[] dependencies,
+                     int[] indegree, int[] topologicalOrder) {
+        this.jobs = jobs;
+        this.indexOf = indexOf;
+        this.dependentsStart = dependentsStart;
+        this.dependents = dependents;
+        this.dependenciesStart = dependenciesStart;
+        this.dependencies = dependencies;
+        this.indegree = indegree;
+        this.topologicalOrder = topologicalOrder;
+    }
+
+    /**
+     * @throws IllegalArgumentException on a dependency that names no job,
+     *   or on a dependency cycle (the message spells the cycle out)
+     */
+    static JobGraph compile(Collection<JobOrchestrator.Job> jobList) {
+        int n = jobList.size();
+        JobOrchestrator.Job[] jobs = jobList.toArray(new JobOrchestrator.Job[0]);
+        Map<String, Integer> indexOf = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            indexOf.put(jobs[i].id, i);
+        }
+
+        // 1. Indegrees and per-job dependent counts (CSR offsets)
+        int[] indegree = new int[n];
+        int[] dependentsStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            for (String dependency : jobs[i].dependencies) {
+                Integer from = indexOf.get(dependency);
+                if (from == null) {
+                    throw new IllegalArgumentException(
+                        "Job " + jobs[i].id + " depends on unknown job: " + dependency);
+                }
+                indegree[i]++;
+                dependentsStart[from + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            dependentsStart[i + 1] += dependentsStart[i];
+        }
+        int[] dependents = new int[dependentsStart[n]];
+        int[] fill = dependentsStart.clone();
+        int[] dependenciesStart = new int[n + 1];
+        int[] dependencies = new int[dependents.length];
+        for (int i = 0; i < n; i++) {
+            String[] sorted = jobs[i].dependencies.toArray(new String[0]);
+            Arrays.sort(sorted);
+            int edge = dependenciesStart[i];
+            for (String dependency : sorted) {
+                int from = indexOf.get(dependency);
+                dependents[fill[from]++] = i;
+                dependencies[edge++] = from;
+            }
+            dependenciesStart[i + 1] = edge;
+        }
+
+        // 2. Kahn: the order array doubles as the work queue
+        int[] remaining = indegree.clone();
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (remaining[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int job = order[head++];
+            for (int e = dependentsStart[job]; e < dependentsStart[job + 1]; e++) {
+                if (--remaining[dependents[e]] == 0) {
+                    order[tail++] = dependents[e];
+                }
+            }
+        }
+        if (tail < n) {
+            throw new IllegalArgumentException("Dependency cycle: " + findCycle(jobs, indexOf, remaining));
+        }
+        return new JobGraph(jobs, indexOf, dependentsStart, dependents,
+                            dependenciesStart, dependencies, indegree, order);
+    }
+
+    int size() {
+        return jobs.length;
+    }
+
+    /**
+     * Critical-path length of every job: its own cost plus the most
+     * expensive chain of dependents after it. Reverse topological order
+     * guarantees every dependent is done before the job itself.
+     */
+    long[] criticalPaths(long[] cost) {
+        long[] path = new long[jobs.length];
+        for (int k = topologicalOrder.length - 1; k >= 0; k--) {
+            int job = topologicalOrder[k];
+            long longestAfter = 0;
+            for (int e = dependentsStart[job]; e < dependentsStart[job + 1]; e++) {
+                longestAfter = Math.max(longestAfter, path[dependents[e]]);
+            }
+            path[job] = cost[job] + longestAfter;
+        }
+        return path;
+    }
+
+    /**
+     * Walk from a job Kahn never reached through dependencies that were never
+     * reached either; the walk must revisit a job, and that loop is the cycle.
+     * Error path only, so plain collections are fine.
+     */
+    private static String findCycle(JobOrchestrator.Job[] jobs, Map<String, Integer> indexOf, int[] remaining) {
+        int start = 0;
+        while (remaining[start] == 0) {
+            start++;
+        }
+        List<String> path = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int job = start;
+        while (seen.add(jobs[job].id)) {
+            path.add(jobs[job].id);
+            for (String dependency : jobs[job].dependencies) {
+                int next = indexOf.get(dependency);
+                if (remaining[next] > 0) {
+                    job = next;
+                    break;
+                }
+            }
+        }
+        List<String> cycle = new ArrayList<>(path.subList(path.indexOf(jobs[job].id), path.size()));
+        cycle.add(jobs[job].id);
+        return String.join(" -> ", cycle); // Read as "depends on"
+    }
+}
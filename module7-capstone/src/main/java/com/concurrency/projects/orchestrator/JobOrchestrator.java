@@ -1,9 +1,18 @@
 package com.concurrency.projects.orchestrator;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
+import com.concurrency.projects.util.VirtualThreads;
+
 /**
  * Project 2: Async Job Orchestrator
  * 
@@ -22,12 +31,108 @@ import java.util.function.Supplier;
  */
 public class JobOrchestrator {
     
-    private final ExecutorService executor;
+    private final ExecutorService cpuExecutor; // CPU and MEMORY jobs
+    private final ExecutorService ioExecutor;  // IO jobs, one virtual thread each
+    private final int[] limits = new int[ResourceClass.values().length];
     private final Map<String, Job> jobs = new ConcurrentHashMap<>();
-    private final Map<String, CompletableFuture<Object>> futures = new ConcurrentHashMap<>();
+    private volatile JobGraph graph; // null until compiled, reset by addJob()
+    private volatile Run lastRun;
+    private final Map<String, Long> learnedCostNanos = new ConcurrentHashMap<>();
+    private volatile ResultCache cache; // null = every job always runs
+    private volatile FailurePolicy failurePolicy = FailurePolicy.FAIL_FAST;
+    
+    private static final int DEFAULT_IO_LIMIT = 64;
     
+    /**
+     * @param parallelism CPU slots: how many CPU and MEMORY jobs may run
+     *   at once (usually the number of cores)
+     */
     public JobOrchestrator(int parallelism) {
-        this.executor = Executors.newFixedThreadPool(parallelism);
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.cpuExecutor = Executors.newFixedThreadPool(parallelism);
+        this.ioExecutor = VirtualThreads.newPerTaskExecutor();
+        limits[ResourceClass.CPU.ordinal()] = parallelism;
+        limits[ResourceClass.MEMORY.ordinal()] = Math.max(1, parallelism / 2);
+        limits[ResourceClass.IO.ordinal()] = DEFAULT_IO_LIMIT;
+    }
+    
+    /**
+     * Cap how many jobs of a class run at once (from the next run on).
+     * 
+     * Defaults: IO 64, MEMORY half the CPU slots (at least 1). The CPU
+     * limit is the constructor's parallelism and can't be raised here -
+     * the pool has exactly that many threads.
+     * 
+     * 💡 THINK: The IO limit is about the other side, not about us: a
+     *   virtual thread per download is cheap, but the server or the disk
+     *   still has a concurrency it serves well.
+     * 
+     * @return this orchestrator
+     */
+    public JobOrchestrator limit(ResourceClass resourceClass, int maxConcurrent) {
+        if (resourceClass == ResourceClass.CPU) {
+            throw new IllegalArgumentException("CPU limit is the parallelism passed to the constructor");
+        }
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive: " + maxConcurrent);
+        }
+        limits[resourceClass.ordinal()] = maxConcurrent;
+        return this;
+    }
+    
+    /**
+     * What a failing job does to the rest of the run (from the next run on).
+     * Default FAIL_FAST.
+     * 
+     * ⚠️ AVOID: Tasks that swallow interrupts in FAIL_FAST mode. A running
+     *   job is cancelled by interrupting its thread; a task that ignores the
+     *   interrupt keeps its worker busy until it returns on its own.
+     * 
+     * @return this orchestrator
+     */
+    public JobOrchestrator onFailure(FailurePolicy policy) {
+        this.failurePolicy = Objects.requireNonNull(policy);
+        return this;
+    }
+    
+    /**
+     * Reuse results of jobs whose inputs haven't changed, across runs and
+     * across processes.
+     * 
+     * 📝 NOTE: A job with a fingerprint() is looked up by a key hashed from
+     *   its id, its fingerprint and the result hashes of its dependencies
+     *   (see ResultCache). On a hit the task is not run at all; the stored
+     *   result is used instead. Jobs without a fingerprint always run, but
+     *   their results are hashed too, so the jobs after them can still hit.
+     * 
+     * 💡 THINK: Make the fingerprint cover every input the task reads that
+     *   is not a dependency result - source file hashes, flags, tool
+     *   versions. Anything left out is an input the cache can't see change.
+     * 
+     * @param directory where results are stored (created if missing)
+     * @return this orchestrator
+     */
+    public JobOrchestrator cacheResults(Path directory) throws IOException {
+        this.cache = new ResultCache(directory);
+        return this;
+    }
+    
+    /**
+     * Jobs whose stored result was reused, over all runs so far.
+     */
+    public long getCacheHits() {
+        ResultCache cache = this.cache;
+        return cache == null ? 0 : cache.hits.sum();
+    }
+    
+    /**
+     * Fingerprinted jobs that had to run, over all runs so far.
+     */
+    public long getCacheMisses() {
+        ResultCache cache = this.cache;
+        return cache == null ? 0 : cache.misses.sum();
     }
     
     /**
@@ -37,12 +142,52 @@ public class JobOrchestrator {
         final String id;
         final Supplier<Object> task;
         final Set<String> dependencies;
+        long costNanos = -1; // -1 = no estimate
+        String fingerprint;  // null = not cacheable
+        ResourceClass resourceClass = ResourceClass.CPU;
         
         public Job(String id, Supplier<Object> task, String... dependencies) {
             this.id = id;
             this.task = task;
             this.dependencies = new HashSet<>(Arrays.asList(dependencies));
         }
+        
+        /**
+         * Estimated running time, used for scheduling only. Once the job
+         * has run, its measured duration takes over.
+         * 
+         * @return this job
+         */
+        public Job cost(long estimate, TimeUnit unit) {
+            if (estimate < 0) {
+                throw new IllegalArgumentException("cost must not be negative: " + estimate);
+            }
+            this.costNanos = unit.toNanos(estimate);
+            return this;
+        }
+        
+        /**
+         * Summary of every input this job reads besides its dependencies'
+         * results (e.g. a hash of its source files). Makes the job
+         * cacheable; see cacheResults().
+         * 
+         * @return this job
+         */
+        public Job fingerprint(String inputFingerprint) {
+            this.fingerprint = Objects.requireNonNull(inputFingerprint);
+            return this;
+        }
+        
+        /**
+         * What this job mostly waits on (default CPU). Decides which
+         * executor runs it and which concurrency limit applies.
+         * 
+         * @return this job
+         */
+        public Job resourceClass(ResourceClass resourceClass) {
+            this.resourceClass = Objects.requireNonNull(resourceClass);
+            return this;
+        }
     }
     
     /**
@@ -50,86 +195,516 @@ public class JobOrchestrator {
      */
     public void addJob(Job job) {
         jobs.put(job.id, job);
+        graph = null;
+    }
+    
+    /**
+     * Validate the jobs added so far and build the execution plan.
+     * 
+     * 📝 NOTE: Called by executeAll() when jobs changed since the last
+     *   compile; call it directly to reject a bad graph before running it.
+     * 
+     * @throws IllegalArgumentException on an unknown dependency or a cycle
+     */
+    public void compile() {
+        if (graph == null) {
+            graph = JobGraph.compile(new ArrayList<>(jobs.values()));
+        }
     }
     
     /**
-     * TODO: Execute all jobs respecting dependencies.
+     * Execute all jobs respecting dependencies.
+     * 
+     * 📝 NOTE: Ready-queue execution instead of one future chain per job:
+     *   - every job gets a counter = its number of unfinished dependencies
+     *   - jobs whose counter is 0 go into the ready queue
+     *   - a finishing job decrements its dependents' counters; whoever
+     *     brings a counter to 0 queues that dependent
+     *   Each edge is touched once and each job queued once, so the
+     *   orchestration overhead is O(jobs + edges) with no recursion.
      * 
-     * 🔑 HINT: For each job:
-     *   1. Get futures of all dependencies
-     *   2. Use CompletableFuture.allOf() to wait for all
-     *   3. Then execute this job
+     * 📝 NOTE: The ready queue is a priority queue, longest critical path
+     *   first (the job's cost plus its most expensive chain of dependents).
+     *   With FIFO, a long chain can sit behind a pile of short leaf jobs and
+     *   finish last; starting it first is what shortens the total run.
+     *   Costs come from measured durations of earlier runs, else from
+     *   Job.cost(), else the job counts as average.
      * 
-     * @return future that completes when all jobs are done
+     * 💡 THINK: The atomic decrement is also the hand-off. The result of a
+     *   dependency is written before its decrement, and the thread that sees
+     *   the counter hit 0 runs the dependent - so the dependent always sees
+     *   every dependency's result.
+     * 
+     * If a job fails, see onFailure(): either the whole run is cancelled at
+     * once, or only the jobs downstream of it are skipped.
+     * 
+     * 📝 NOTE: Runs never share the executors. Under FAIL_FAST the returned
+     *   future completes while interrupted jobs may still be on their
+     *   threads; a new run submitted meanwhile would queue behind them. So
+     *   a run starts only once the previous one has settled - every job
+     *   it launched has left its thread.
+     * 
+     * @return future that completes when all jobs are done (exceptionally
+     *   with the first failure, if any) - or, under FAIL_FAST, as soon as
+     *   the first failure has cancelled the run
+     * @throws IllegalArgumentException on an unknown dependency or a cycle
      */
     public CompletableFuture<Void> executeAll() {
-        // Create futures for all jobs
-        for (Job job : jobs.values()) {
-            getOrCreateFuture(job.id);
+        compile();
+        Run previous = lastRun;
+        Run run = new Run(graph);
+        lastRun = run;
+        if (previous == null || previous.settled.isDone()) {
+            run.start();
+        } else {
+            previous.settled.thenRun(run::startLater);
         }
-        
-        // Return future that completes when all jobs are done
-        return CompletableFuture.allOf(
-            futures.values().toArray(new CompletableFuture[0])
-        );
+        return run.done;
     }
     
     /**
-     * TODO: Get or create the future for a job.
+     * Current cost estimate for a job: learned from measured runs if it has
+     * run before, else its declared cost(), else -1.
+     */
+    public long getCostEstimate(String jobId, TimeUnit unit) {
+        Long learned = learnedCostNanos.get(jobId);
+        if (learned != null) {
+            return unit.convert(learned, TimeUnit.NANOSECONDS);
+        }
+        Job job = jobs.get(jobId);
+        return job == null || job.costNanos < 0 ? -1 : unit.convert(job.costNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Blend a measured duration into the job's estimate.
      * 
-     * 📝 NOTE: This is where the magic happens!
-     *   - If job has no dependencies, run immediately
-     *   - If job has dependencies, wait for them first
+     * 💡 THINK: A moving average (new sample weighted 1/4) keeps one slow
+     *   outlier - a cold cache, a GC pause - from reshuffling the next
+     *   schedule, but still follows a job that really got slower.
+     */
+    private void learnCost(String jobId, long measuredNanos) {
+        learnedCostNanos.merge(jobId, measuredNanos, (old, measured) -> old + (measured - old) / 4);
+    }
+    
+    /**
+     * Scheduling cost of every job: learned, declared, or - for jobs we
+     * know nothing about - the average of the known ones (1 if none is
+     * known, which makes the critical path the longest chain of jobs).
+     */
+    private long[] estimateCosts(JobGraph graph) {
+        long[] cost = new long[graph.size()];
+        long knownTotal = 0;
+        int known = 0;
+        for (int i = 0; i < cost.length; i++) {
+            Long learned = learnedCostNanos.get(graph.jobs[i].id);
+            cost[i] = learned != null ? learned : graph.jobs[i].costNanos;
+            if (cost[i] >= 0) {
+                knownTotal += cost[i];
+                known++;
+            }
+        }
+        long unknown = known == 0 ? 1 : Math.max(1, knownTotal / known);
+        for (int i = 0; i < cost.length; i++) {
+            if (cost[i] < 0) {
+                cost[i] = unknown;
+            }
+        }
+        return cost;
+    }
+    
+    private static final ResourceClass[] CLASSES = ResourceClass.values();
+    
+    /**
+     * State of one executeAll() call.
      */
-    @SuppressWarnings("unchecked")
-    private CompletableFuture<Object> getOrCreateFuture(String jobId) {
-        return futures.computeIfAbsent(jobId, id -> {
-            Job job = jobs.get(id);
-            if (job == null) {
-                return CompletableFuture.failedFuture(
-                    new IllegalArgumentException("Unknown job: " + id));
+    private final class Run {
+        final JobGraph graph;
+        final List<CompletableFuture<Object>> results;
+        final AtomicIntegerArray pending;        // unfinished dependencies per job
+        final long[] criticalPath;
+        final ResultCache cache = JobOrchestrator.this.cache;
+        final byte[][] resultHash;               // cache mode: hash of each result, null if unknown
+        final int[] limits = JobOrchestrator.this.limits.clone();
+        final ReentrantLock dispatchLock = new ReentrantLock();
+        final List<PriorityQueue<Integer>> ready; // per ResourceClass, guarded by dispatchLock
+        final int[] running;                     // per ResourceClass, guarded by dispatchLock
+        final Future<?>[] active;                // started, not yet released; guarded by dispatchLock
+        final AtomicIntegerArray entered;        // 1 once the job's task or abort() claimed it
+        final boolean failFast = failurePolicy == FailurePolicy.FAIL_FAST;
+        boolean aborted = false;                 // guarded by dispatchLock
+        final AtomicReferenceArray<Throwable> upstreamFailure;
+        final AtomicInteger remaining;           // jobs not yet finished
+        final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final CompletableFuture<Void> settled = new CompletableFuture<>(); // done, and no job on a thread
+        
+        Run(JobGraph graph) {
+            this.graph = graph;
+            int n = graph.size();
+            this.results = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                results.add(new CompletableFuture<>());
+            }
+            this.pending = new AtomicIntegerArray(graph.indegree);
+            this.criticalPath = graph.criticalPaths(estimateCosts(graph));
+            this.ready = new ArrayList<>(CLASSES.length);
+            for (int c = 0; c < CLASSES.length; c++) {
+                ready.add(new PriorityQueue<>(this::compareReady));
+            }
+            this.running = new int[CLASSES.length];
+            this.active = new Future<?>[n];
+            this.entered = new AtomicIntegerArray(n);
+            this.upstreamFailure = new AtomicReferenceArray<>(n);
+            this.resultHash = cache == null ? null : new byte[n][];
+            this.remaining = new AtomicInteger(n);
+        }
+        
+        void start() {
+            if (graph.size() == 0) {
+                done.complete(null);
+                settled.complete(null);
+                return;
+            }
+            dispatchLock.lock();
+            try {
+                for (int i = 0; i < graph.size(); i++) {
+                    if (graph.indegree[i] == 0) {
+                        ready.get(graph.jobs[i].resourceClass.ordinal()).add(i);
+                    }
+                }
+                dispatch(); // All roots queued before any is picked
+            } finally {
+                dispatchLock.unlock();
+            }
+        }
+        
+        /**
+         * start() once the previous run settled, on the thread that settled
+         * it; a failure to start fails this run instead of reaching nobody.
+         */
+        void startLater() {
+            try {
+                start();
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+                settled.complete(null);
+            }
+        }
+        
+        /**
+         * Longest remaining path first; ties in graph order.
+         */
+        int compareReady(Integer a, Integer b) {
+            int byPath = Long.compare(criticalPath[b], criticalPath[a]);
+            return byPath != 0 ? byPath : Integer.compare(a, b);
+        }
+        
+        void submit(int job) {
+            dispatchLock.lock();
+            try {
+                if (aborted) {
+                    return; // A job that finished after the abort: drop its dependents
+                }
+                ready.get(graph.jobs[job].resourceClass.ordinal()).add(job);
+                dispatch();
+            } finally {
+                dispatchLock.unlock();
+            }
+        }
+        
+        /**
+         * Start ready jobs while their class has free slots. Called with
+         * dispatchLock held, whenever a job becomes ready or a slot frees up.
+         * 
+         * 📝 NOTE: Jobs are handed to an executor only when they can start
+         *   right away, so executors never queue anything. Which job gets a
+         *   freed slot is decided here, at that moment, by critical path.
+         * 
+         * 🔑 HINT: CPU and MEMORY jobs share the CPU slots. When both have
+         *   a job ready, the more critical one goes first; a MEMORY job
+         *   additionally needs one of the (fewer) MEMORY slots.
+         */
+        void dispatch() {
+            if (aborted) {
+                return;
+            }
+            int cpu = ResourceClass.CPU.ordinal();
+            int memory = ResourceClass.MEMORY.ordinal();
+            int io = ResourceClass.IO.ordinal();
+            while (running[cpu] + running[memory] < limits[cpu]) {
+                Integer nextCpu = ready.get(cpu).peek();
+                Integer nextMemory = running[memory] < limits[memory] ? ready.get(memory).peek() : null;
+                if (nextCpu == null && nextMemory == null) {
+                    break;
+                }
+                boolean takeCpu = nextMemory == null
+                    || (nextCpu != null && compareReady(nextCpu, nextMemory) <= 0);
+                launch(takeCpu ? cpu : memory);
+            }
+            while (running[io] < limits[io] && !ready.get(io).isEmpty()) {
+                launch(io);
+            }
+        }
+        
+        void launch(int resourceClass) {
+            int job = ready.get(resourceClass).poll();
+            running[resourceClass]++;
+            ExecutorService executor = resourceClass == ResourceClass.IO.ordinal() ? ioExecutor : cpuExecutor;
+            // submit, not execute: the Future is what abort() cancels
+            active[job] = executor.submit(() -> {
+                if (!entered.compareAndSet(job, 0, 1)) {
+                    return; // abort() got here first and released the slot for us
+                }
+                try {
+                    run(job);
+                } finally {
+                    release(job, resourceClass);
+                }
+            });
+        }
+        
+        void release(int job, int resourceClass) {
+            boolean idle;
+            dispatchLock.lock();
+            try {
+                active[job] = null;
+                running[resourceClass]--;
+                dispatch();
+                idle = (aborted || remaining.get() == 0) && Arrays.stream(running).sum() == 0;
+            } finally {
+                dispatchLock.unlock();
+            }
+            if (idle) {
+                settled.complete(null); // Outside the lock: the next run may start right here
+            }
+        }
+        
+        /**
+         * Run one job (or take its result from the cache) and finish it.
+         * 
+         * ⚠️ AVOID: Letting anything escape before finish(). The job would
+         *   never complete, its dependents never run and executeAll() never
+         *   return. The cache is an optimization, so any failure in it - an
+         *   unserializable result, a StackOverflowError from a deep object
+         *   graph - is logged and the job proceeds without it.
+         */
+        void run(int job) {
+            byte[] key = null;
+            if (cache != null) {
+                ResultCache.Entry hit = null;
+                try {
+                    key = cacheKey(job);
+                    hit = key == null ? null : cache.load(key);
+                } catch (Throwable t) {
+                    cacheFailed(job, t);
+                    key = null; // Don't store under a key we couldn't look up
+                }
+                if (hit != null) {
+                    resultHash[job] = hit.resultHash;
+                    finish(job, hit.result, null);
+                    return;
+                }
             }
             
-            if (job.dependencies.isEmpty()) {
-                // No dependencies - run immediately
-                return CompletableFuture.supplyAsync(job.task, executor);
-            } else {
-                // Wait for all dependencies first
-                CompletableFuture<Object>[] deps = job.dependencies.stream()
-                    .map(this::getOrCreateFuture)
-                    .toArray(CompletableFuture[]::new);
-                
-                return CompletableFuture.allOf(deps)
-                    .thenApplyAsync(v -> {
-                        System.out.println("Starting job: " + job.id);
-                        return job.task.get();
-                    }, executor);
+            Object result;
+            long start = System.nanoTime();
+            try {
+                result = graph.jobs[job].task.get();
+            } catch (Throwable t) {
+                finish(job, null, t);
+                return;
+            }
+            if (results.get(job).isDone()) {
+                // abort() cancelled us (results are completed before the interrupt).
+                // A job that swallowed the interrupt may return a partial value
+                // after a shortened run: neither goes into the cache or the estimates.
+                finish(job, result, null); // No-op on the result; still counts the job
+                return;
+            }
+            learnCost(graph.jobs[job].id, System.nanoTime() - start);
+            
+            if (cache != null) {
+                try {
+                    resultHash[job] = key != null ? cache.store(key, result) : ResultCache.hashOf(result);
+                } catch (Throwable t) {
+                    // The result itself is fine; only the next run loses the hit.
+                    // resultHash stays null, so dependents skip the cache too.
+                    cacheFailed(job, t);
+                }
+            }
+            finish(job, result, null);
+        }
+        
+        void cacheFailed(int job, Throwable t) {
+            System.err.println("Could not cache " + graph.jobs[job].id + ": " + t);
+        }
+        
+        /**
+         * @return the cache key, or null if the job has no fingerprint or a
+         *   dependency's result could not be hashed
+         */
+        byte[] cacheKey(int job) {
+            Job spec = graph.jobs[job];
+            if (spec.fingerprint == null) {
+                return null;
+            }
+            int from = graph.dependenciesStart[job];
+            int to = graph.dependenciesStart[job + 1];
+            String[] ids = new String[to - from];
+            byte[][] hashes = new byte[to - from][];
+            for (int e = from; e < to; e++) {
+                int dependency = graph.dependencies[e];
+                if (resultHash[dependency] == null) {
+                    return null;
+                }
+                ids[e - from] = graph.jobs[dependency].id;
+                hashes[e - from] = resultHash[dependency];
+            }
+            return ResultCache.key(spec.id, spec.fingerprint, ids, hashes);
+        }
+        
+        /**
+         * Record a job's outcome and release its dependents.
+         * 
+         * 🔑 HINT: A dependent whose counter hits 0 after a failed dependency
+         *   is pruned right here instead of being queued: it fails with the
+         *   same cause and its own dependents are processed in the same loop.
+         *   An explicit stack, not recursion, so a long failed chain can't
+         *   overflow the stack, and pruned jobs never take a slot.
+         */
+        void finish(int job, Object result, Throwable failure) {
+            ArrayDeque<Integer> pruned = null;
+            while (true) {
+                if (failure == null) {
+                    results.get(job).complete(result);
+                } else {
+                    results.get(job).completeExceptionally(failure);
+                    firstFailure.compareAndSet(null, failure);
+                    if (failFast) {
+                        abort(job, failure);
+                        return;
+                    }
+                }
+                for (int e = graph.dependentsStart[job]; e < graph.dependentsStart[job + 1]; e++) {
+                    int dependent = graph.dependents[e];
+                    if (failure != null) {
+                        upstreamFailure.compareAndSet(dependent, null, failure);
+                    }
+                    if (pending.decrementAndGet(dependent) == 0) {
+                        if (upstreamFailure.get(dependent) == null) {
+                            submit(dependent);
+                        } else {
+                            if (pruned == null) {
+                                pruned = new ArrayDeque<>();
+                            }
+                            pruned.push(dependent);
+                        }
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    Throwable first = firstFailure.get();
+                    if (first == null) {
+                        done.complete(null);
+                    } else {
+                        done.completeExceptionally(first);
+                    }
+                }
+                if (pruned == null || pruned.isEmpty()) {
+                    return;
+                }
+                job = pruned.pop();
+                result = null;
+                failure = upstreamFailure.get(job);
+            }
+        }
+        
+        /**
+         * FAIL_FAST: stop everything after the first failure.
+         * 
+         * 📝 NOTE: Three kinds of jobs are left when a job fails:
+         *   - queued or not yet ready: cleared, and dispatch() starts nothing
+         *     from now on
+         *   - running: their Future is cancelled with interrupt
+         *   - all of them: their result completes with CancellationException
+         *   Jobs that were already running may still finish; their
+         *   outcome is ignored (results are already complete, done too).
+         *   The run settles once they have: see executeAll().
+         * 
+         * ⚠️ AVOID: Counting on a cancelled task to release its slot. A task
+         *   still in the executor's queue never runs, so its finally never
+         *   runs either. Whoever claims a job first (entered 0 → 1) owns
+         *   the release: the task if it started, abort() if it didn't.
+         */
+        void abort(int failedJob, Throwable failure) {
+            List<Integer> toInterrupt = new ArrayList<>();
+            Future<?>[] tasks;
+            dispatchLock.lock();
+            try {
+                if (aborted) {
+                    return; // Another failure got here first
+                }
+                aborted = true;
+                for (PriorityQueue<Integer> queue : ready) {
+                    queue.clear();
+                }
+                for (int i = 0; i < active.length; i++) {
+                    if (active[i] != null && i != failedJob) { // Don't interrupt ourselves
+                        toInterrupt.add(i);
+                    }
+                }
+                tasks = active.clone(); // release() may clear entries once we unlock
+            } finally {
+                dispatchLock.unlock();
             }
-        });
+            // Results first: an interrupted job must find its result already
+            // cancelled, not report its InterruptedException as a failure
+            CancellationException cancelled = new CancellationException(
+                "Cancelled: job " + graph.jobs[failedJob].id + " failed");
+            cancelled.initCause(failure);
+            for (CompletableFuture<Object> result : results) {
+                result.completeExceptionally(cancelled); // No-op for jobs already done
+            }
+            for (int job : toInterrupt) {
+                Future<?> task = tasks[job];
+                if (entered.compareAndSet(job, 0, 1)) {
+                    task.cancel(false); // Never started and now never will
+                    release(job, graph.jobs[job].resourceClass.ordinal());
+                } else {
+                    task.cancel(true);
+                }
+            }
+            done.completeExceptionally(failure);
+        }
     }
     
     /**
-     * Get the result of a specific job.
+     * Get the result of a specific job (waits for it if still running).
      */
     public Object getResult(String jobId) throws ExecutionException, InterruptedException {
-        CompletableFuture<Object> future = futures.get(jobId);
-        if (future == null) {
+        Run run = lastRun;
+        Integer index = run == null ? null : run.graph.indexOf.get(jobId);
+        if (index == null) {
             throw new IllegalArgumentException("Job not executed: " + jobId);
         }
-        return future.get();
+        return run.results.get(index).get();
     }
     
     /**
      * Shutdown the orchestrator.
      */
     public void shutdown() {
-        executor.shutdown();
+        cpuExecutor.shutdown();
+        ioExecutor.shutdown();
         try {
-            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            if (!cpuExecutor.awaitTermination(30, TimeUnit.SECONDS)
+                || !ioExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                cpuExecutor.shutdownNow();
+                ioExecutor.shutdownNow();
             }
         } catch (InterruptedException e) {
-            executor.shutdownNow();
+            cpuExecutor.shutdownNow();
+            ioExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
     }
@@ -189,6 +764,30 @@ public class JobOrchestrator {
         // Because A and B run in parallel!
         
         orchestrator.shutdown();
+        
+        // Orchestration overhead: a 100k-job chain (deep recursion would
+        // overflow the stack here) plus a 100k-job fan-in
+        JobOrchestrator large = new JobOrchestrator(4);
+        int n = 100_000;
+        large.addJob(new Job("chain-0", () -> 0));
+        for (int i = 1; i < n; i++) {
+            large.addJob(new Job("chain-" + i, () -> 0, "chain-" + (i - 1)));
+        }
+        String[] leaves = new String[n];
+        for (int i = 0; i < n; i++) {
+            leaves[i] = "leaf-" + i;
+            large.addJob(new Job(leaves[i], () -> 0));
+        }
+        large.addJob(new Job("all", () -> "done", leaves));
+        
+        start = System.currentTimeMillis();
+        large.compile();
+        long compiled = System.currentTimeMillis() - start;
+        large.executeAll().join();
+        elapsed = System.currentTimeMillis() - start;
+        System.out.println((2 * n + 1) + " jobs: compiled in " + compiled
+            + "ms, executed in " + elapsed + "ms");
+        large.shutdown();
     }
     
     private static void sleep(long ms) {
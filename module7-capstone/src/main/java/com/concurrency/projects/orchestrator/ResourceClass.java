@@ -0,0 +1,32 @@
+package com.concurrency.projects.orchestrator;
+
+/**
+ * What a job mostly spends its time on. Decides where it runs and how
+ * many like it may run at once (see JobOrchestrator.limit()).
+ *
+ * 📝 NOTE: One shared pool sized for CPU work wastes it on I/O: a job
+ *   waiting for a download holds a slot a compile could use. Separate
+ *   classes let each resource be saturated on its own terms.
+ */
+public enum ResourceClass {
+
+    /**
+     * Computes most of the time. Runs on the CPU pool; at most
+     * parallelism CPU + MEMORY jobs run at once.
+     */
+    CPU,
+
+    /**
+     * Waits most of the time (network, disk, remote services). Runs on
+     * virtual threads and doesn't count against the CPU slots, so many
+     * can be in flight.
+     */
+    IO,
+
+    /**
+     * CPU work with a large heap footprint. Takes a CPU slot like CPU
+     * jobs, and a separate, smaller limit keeps several of them from
+     * running at once and exhausting the heap.
+     */
+    MEMORY
+}
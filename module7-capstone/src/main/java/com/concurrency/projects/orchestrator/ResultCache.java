@@ -0,0 +1,174 @@
+package com.concurrency.projects.orchestrator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * On-disk job results, addressed by what went into them.
+ *
+ * Keys and hashes (all SHA-256):
+ *   result hash  = hash of the serialized result
+ *   cache key    = hash of (job id, input fingerprint,
+ *                           result hash of every dependency, sorted by id)
+ *   file         = directory/ab/cdef... (hex of the key) holding
+ *                  [32-byte result hash][serialized result]
+ *
+ * 📝 NOTE: The key covers everything the job's output can depend on, so a
+ *   hit is safe to reuse as-is. Because dependencies enter the key through
+ *   their result hash (not their own key), a dependency that re-ran but
+ *   produced the same bytes doesn't invalidate anything downstream.
+ *
+ * 💡 THINK: Why store the result hash in the entry? On a hit, dependents
+ *   need it for their own key. Reading it back is cheaper than
+ *   re-serializing and re-hashing the result.
+ *
+ * ⚠️ AVOID: Results whose serialized form changes from run to run (a
+ *   timestamp inside, say). They are still cached, but their dependents
+ *   never hit. Results that are not Serializable are not cached at all.
+ *
+ * Entries are written to a temp file and renamed into place, so readers
+ * never see a torn entry, and concurrent writers of one key are harmless
+ * (same key, same content).
+ */
+final class ResultCache {
+
+    static final int HASH_LENGTH = 32;
+
+    /**
+     * A result loaded from the cache.
+     */
+    static final class Entry {
+        final Object result;
+        final byte[] resultHash;
+
+        Entry(Object result, byte[] resultHash) {
+            this.result = result;
+            this.resultHash = resultHash;
+        }
+    }
+
+    private final Path directory;
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+
+    ResultCache(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * @return the cached entry, or null on a miss (or an unreadable entry,
+     *   which the next store() replaces)
+     */
+    Entry load(byte[] key) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(fileOf(key));
+        } catch (IOException e) {
+            misses.increment(); // Usually NoSuchFileException: never stored
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes, HASH_LENGTH, bytes.length - HASH_LENGTH))) {
+            Entry entry = new Entry(in.readObject(), Arrays.copyOf(bytes, HASH_LENGTH));
+            hits.increment();
+            return entry;
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            misses.increment(); // Truncated, or written by an incompatible class version
+            return null;
+        }
+    }
+
+    /**
+     * Store a freshly computed result.
+     *
+     * @return its result hash, or null if it can't be serialized
+     */
+    byte[] store(byte[] key, Object result) throws IOException {
+        byte[] serialized = serialize(result);
+        if (serialized == null) {
+            return null;
+        }
+        byte[] resultHash = sha256().digest(serialized);
+        Path file = fileOf(key);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            byte[] entry = Arrays.copyOf(resultHash, HASH_LENGTH + serialized.length);
+            System.arraycopy(serialized, 0, entry, HASH_LENGTH, serialized.length);
+            Files.write(temp, entry);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return resultHash;
+    }
+
+    /**
+     * Result hash of a job that is not cached itself (no fingerprint), so
+     * its dependents can still be. Null if the result can't be serialized.
+     */
+    static byte[] hashOf(Object result) throws IOException {
+        byte[] serialized = serialize(result);
+        return serialized == null ? null : sha256().digest(serialized);
+    }
+
+    /**
+     * Cache key of a job. Fields are length-prefixed, so ("ab", "c") and
+     * ("a", "bc") can never collide.
+     */
+    static byte[] key(String jobId, String fingerprint, String[] dependencyIds, byte[][] dependencyHashes) {
+        MessageDigest digest = sha256();
+        update(digest, jobId);
+        update(digest, fingerprint);
+        for (int i = 0; i < dependencyIds.length; i++) {
+            update(digest, dependencyIds[i]);
+            digest.update(dependencyHashes[i]);
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, String field) {
+        byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private Path fileOf(byte[] key) {
+        String hex = HexFormat.of().formatHex(key);
+        return directory.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+    }
+
+    private static byte[] serialize(Object result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(result);
+        } catch (NotSerializableException e) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every JVM", e);
+        }
+    }
+}
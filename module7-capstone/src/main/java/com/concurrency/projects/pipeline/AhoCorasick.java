@@ -0,0 +1,191 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds all of many substrings in one left-to-right pass over the text.
+ *
+ * 📝 NOTE: Checking each pattern with contains() costs O(text × patterns):
+ *   500 rules means 500 scans of every message. Aho-Corasick compiles all
+ *   patterns into one automaton (a trie plus "failure" links saying where
+ *   to continue after a mismatch), so each character costs one table
+ *   lookup whatever the number of patterns.
+ *
+ * Compiled layout (all flat arrays, nothing allocated while scanning):
+ *   classOf[c]            → small alphabet index (0 = char in no pattern)
+ *   delta[state * A + k]  → next state; failure links are pre-applied, so
+ *                           there is never a fallback loop at scan time
+ *   outputs[state]        → ids of every pattern ending here, including
+ *                           those inherited through failure links
+ *
+ * 💡 THINK: Why collapse characters into an alphabet of pattern chars?
+ *   A full char table would need 65536 entries per state. Characters that
+ *   appear in no pattern all behave the same (back to a shorter match),
+ *   so they can share class 0.
+ *
+ * Immutable once built; safe to share between worker threads.
+ */
+public final class AhoCorasick {
+
+    private static final int[] NONE = new int[0];
+
+    private final int[] classOf;
+    private final int alphabetSize;
+    private final int[] delta;
+    private final int[][] outputs;
+    private final int patternCount;
+
+    /**
+     * @param patterns substrings to find; a pattern's id is its list index
+     * @param ignoreCase fold case while matching (no extra work per char)
+     */
+    public AhoCorasick(List<String> patterns, boolean ignoreCase) {
+        this.patternCount = patterns.size();
+
+        // 1. Alphabet: every char used by a pattern (and its case variants)
+        int maxChar = 0;
+        for (String pattern : patterns) {
+            if (pattern.isEmpty()) {
+                throw new IllegalArgumentException("Empty pattern would match everywhere");
+            }
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                maxChar = Math.max(maxChar, c);
+                if (ignoreCase) {
+                    maxChar = Math.max(maxChar, Math.max(Character.toLowerCase(c),
+                        Math.max(Character.toUpperCase(c), Character.toTitleCase(c))));
+                }
+            }
+        }
+        classOf = new int[maxChar + 1];
+        int classes = 1;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = ignoreCase ? Character.toLowerCase(pattern.charAt(i)) : pattern.charAt(i);
+                if (classOf[c] == 0) {
+                    classOf[c] = classes++;
+                    if (ignoreCase) {
+                        classOf[Character.toUpperCase(c)] = classOf[c];
+                        classOf[Character.toTitleCase(c)] = classOf[c];
+                    }
+                }
+            }
+        }
+        alphabetSize = classes;
+
+        // 2. Trie: -1 marks a missing edge until step 3 fills it in
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+        }
+        int[] trie = new int[maxStates * alphabetSize];
+        Arrays.fill(trie, -1);
+        int[][] own = new int[maxStates][];
+        int states = 1;
+        for (int id = 0; id < patterns.size(); id++) {
+            String pattern = patterns.get(id);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int slot = state * alphabetSize + classOf[ignoreCase
+                    ? Character.toLowerCase(pattern.charAt(i)) : pattern.charAt(i)];
+                if (trie[slot] == -1) {
+                    trie[slot] = states++;
+                }
+                state = trie[slot];
+            }
+            own[state] = append(own[state], id);
+        }
+
+        // 3. BFS: failure links, then turn missing edges into failure jumps
+        delta = Arrays.copyOf(trie, states * alphabetSize);
+        outputs = new int[states][];
+        int[] fail = new int[states];
+        outputs[0] = NONE;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int k = 0; k < alphabetSize; k++) {
+            int child = delta[k];
+            if (child == -1) {
+                delta[k] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            // Failure state is shallower, so its outputs are already final
+            outputs[state] = merge(own[state], outputs[fail[state]]);
+            for (int k = 0; k < alphabetSize; k++) {
+                int slot = state * alphabetSize + k;
+                int child = delta[slot];
+                int viaFail = delta[fail[state] * alphabetSize + k];
+                if (child == -1) {
+                    delta[slot] = viaFail;
+                } else {
+                    fail[child] = viaFail;
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * State after reading c in the given state. Start from state 0.
+     */
+    int step(int state, char c) {
+        int k = c < classOf.length ? classOf[c] : 0;
+        return delta[state * alphabetSize + k];
+    }
+
+    /**
+     * Ids of patterns that end at this state (empty array if none).
+     */
+    int[] patternsAt(int state) {
+        return outputs[state];
+    }
+
+    /**
+     * True if text[start, end) contains any pattern. Stops at the first hit.
+     */
+    public boolean matchesAny(CharSequence text, int start, int end) {
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            state = step(state, text.charAt(i));
+            if (outputs[state].length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    public int getStateCount() {
+        return outputs.length;
+    }
+
+    private static int[] append(int[] ids, int id) {
+        if (ids == null) {
+            return new int[] {id};
+        }
+        int[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = id;
+        return grown;
+    }
+
+    private static int[] merge(int[] own, int[] inherited) {
+        if (own == null) {
+            return inherited; // Shared, never mutated
+        }
+        if (inherited.length == 0) {
+            return own;
+        }
+        int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+        return merged;
+    }
+}
@@ -0,0 +1,127 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Filter stage: keeps records whose text matches any alert rule, and says which.
+ *
+ * A rule is a name plus keywords; it matches if any keyword occurs in the text:
+ *   Map.of("db-down",  List.of("connection refused", "database connection failed"),
+ *          "disk",     List.of("no space left", "disk full"))
+ *
+ * Usage (as a map stage - non-matching records become null and are dropped):
+ *   DataPipeline.source(rawLogs)
+ *       .map(LogEntry::parse)
+ *       .map(new AlertRuleFilter<LogEntry>(rules, true, entry -> entry.message))
+ *       .sink(alerts);                        // alerts: BlockingQueue<Match<LogEntry>>
+ *
+ * 📝 NOTE: All keywords of all rules go into one AhoCorasick automaton, so
+ *   each message is scanned exactly once, one table lookup per character,
+ *   whether there are 5 rules or 5000. Records that match nothing (the vast
+ *   majority) allocate nothing.
+ *
+ * Stateless apart from the immutable automaton: safe with any worker count.
+ *
+ * @param <T> record type
+ */
+public class AlertRuleFilter<T> implements Function<T, AlertRuleFilter.Match<T>> {
+
+    /**
+     * A record plus the names of the rules it matched, in rule order.
+     */
+    public static final class Match<T> {
+        private final T record;
+        private final List<String> rules;
+
+        Match(T record, List<String> rules) {
+            this.record = record;
+            this.rules = rules;
+        }
+
+        public T getRecord() {
+            return record;
+        }
+
+        public List<String> getRules() {
+            return rules;
+        }
+
+        @Override
+        public String toString() {
+            return rules + " " + record;
+        }
+    }
+
+    private final AhoCorasick automaton;
+    private final int[] ruleOfPattern;
+    private final String[] ruleNames;
+    private final Function<? super T, ? extends CharSequence> text;
+
+    /**
+     * @param rules rule name → keywords (iteration order = reporting order)
+     * @param ignoreCase match keywords case-insensitively
+     * @param text the part of the record to scan
+     */
+    public AlertRuleFilter(Map<String, ? extends List<String>> rules, boolean ignoreCase,
+                           Function<? super T, ? extends CharSequence> text) {
+        List<String> patterns = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        ruleNames = new String[rules.size()];
+        int rule = 0;
+        for (Map.Entry<String, ? extends List<String>> entry : rules.entrySet()) {
+            ruleNames[rule] = entry.getKey();
+            for (String keyword : entry.getValue()) {
+                patterns.add(keyword);
+                owners.add(rule);
+            }
+            rule++;
+        }
+        this.automaton = new AhoCorasick(patterns, ignoreCase);
+        this.ruleOfPattern = owners.stream().mapToInt(Integer::intValue).toArray();
+        this.text = text;
+    }
+
+    /**
+     * @return the match, or null (record dropped) if no rule matched
+     */
+    @Override
+    public Match<T> apply(T record) {
+        CharSequence scanned = text.apply(record);
+        long[] matched = null; // Bitset of rule ids, allocated on the first hit only
+        int state = 0;
+        for (int i = 0, n = scanned.length(); i < n; i++) {
+            state = automaton.step(state, scanned.charAt(i));
+            int[] hits = automaton.patternsAt(state);
+            for (int hit : hits) {
+                int rule = ruleOfPattern[hit];
+                if (matched == null) {
+                    matched = new long[(ruleNames.length + 63) >>> 6];
+                }
+                matched[rule >>> 6] |= 1L << rule;
+            }
+        }
+        if (matched == null) {
+            return null;
+        }
+
+        List<String> names = new ArrayList<>(2);
+        for (int rule = 0; rule < ruleNames.length; rule++) {
+            if ((matched[rule >>> 6] & (1L << rule)) != 0) {
+                names.add(ruleNames[rule]);
+            }
+        }
+        return new Match<>(record, Collections.unmodifiableList(names));
+    }
+
+    public int getRuleCount() {
+        return ruleNames.length;
+    }
+
+    public int getKeywordCount() {
+        return ruleOfPattern.length;
+    }
+}
@@ -0,0 +1,44 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A processor that transforms a whole batch of records per call.
+ *
+ * 📝 NOTE: Used by DataPipeline.batched(...). A worker drains up to
+ *   maxBatchSize records in one queue operation and hands them over here,
+ *   so the queue lock is paid once per batch instead of once per record.
+ *
+ * 💡 THINK: Batch-aware processors can also amortize their own costs:
+ *   one DB round-trip per batch, one buffer flush per batch, etc.
+ */
+@FunctionalInterface
+public interface BatchProcessor<I, O> {
+
+    /**
+     * Process a batch. The input list is reused by the worker after this
+     * returns - do not keep a reference to it.
+     *
+     * @return outputs to publish downstream (may be shorter than the input)
+     */
+    List<O> processBatch(List<I> batch);
+
+    /**
+     * Lift a per-record function into a batch processor.
+     * Null results are dropped, same as a regular DataPipeline processor.
+     */
+    static <I, O> BatchProcessor<I, O> perRecord(Function<I, O> processor) {
+        return batch -> {
+            List<O> outputs = new ArrayList<>(batch.size());
+            for (I input : batch) {
+                O output = processor.apply(input);
+                if (output != null) {
+                    outputs.add(output);
+                }
+            }
+            return outputs;
+        };
+    }
+}
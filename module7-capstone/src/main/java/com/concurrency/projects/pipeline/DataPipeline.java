@@ -1,6 +1,24 @@
 package com.concurrency.projects.pipeline;
 
+import com.concurrency.projects.util.VirtualThreads;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
 /**
@@ -25,9 +43,55 @@ public class DataPipeline<I, O> {
     private final BlockingQueue<I> inputQueue;
     private final BlockingQueue<O> outputQueue;
     private final Function<I, O> processor;
+    private final BatchProcessor<I, O> batchProcessor; // non-null in batch mode
+    private final int maxBatchSize;
     private final int numWorkers;
-    private final ExecutorService workers;
+    private volatile ExecutorService workers; // created by start()
     private volatile boolean running = true;
+    private boolean started = false;
+    
+    // Ordered mode: take + claim happen atomically under takeLock
+    private ReorderBuffer<Object> reorderBuffer;
+    private final ReentrantLock takeLock = new ReentrantLock();
+    
+    // Partitioned mode: one queue per worker, fed by a single dispatcher
+    private Function<? super I, ?> keyExtractor;
+    private int partitionCapacity;
+    private List<BlockingQueue<I>> partitions;
+    
+    // Elastic mode: worker count moves between minWorkers and maxWorkers
+    private boolean elastic = false;
+    private int minWorkers;
+    private int maxWorkers;
+    private int queueDepthThreshold;
+    private long maxWaitMillis;
+    private long idleCooldownNanos;
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private final AtomicInteger nextWorkerId = new AtomicInteger();
+    private Future<?> scaler;
+    
+    // Virtual-thread mode: one task per in-flight record, bounded by a semaphore
+    private int maxInFlight = 0; // 0 = off
+    private Semaphore inFlight;
+    private volatile ExecutorService taskExecutor;
+    
+    // Instrumentation (hot path: LongAdders and histogram buckets only)
+    private final StageMetrics metrics;
+    private final ReorderBuffer.Sink<Object> emitter = this::emit; // One allocation, not one per record
+    private ObjectName mbeanName;
+    
+    private static final long SCALE_INTERVAL_MS = 100;
+    private static final int SUSTAINED_SAMPLES = 3; // Pressure must last 300ms
+    
+    // drain(): no more input is coming, so a source that is empty stays empty.
+    // Set before the threads blocked on that source are woken (see nextInput).
+    private volatile boolean inputEnded = false;
+    private volatile boolean partitionsEnded = false; // set by the partition dispatcher
+    private final Object waitLock = new Object();
+    private final Set<Thread> waitingForInput = new HashSet<>(); // guarded by waitLock
+    
+    // What nextInput() returns once its source has ended; never in a queue
+    private static final Object END_OF_INPUT = new Object();
     
     /**
      * Creates a pipeline stage.
@@ -41,11 +105,207 @@ public class DataPipeline<I, O> {
                         BlockingQueue<O> outputQueue,
                         Function<I, O> processor,
                         int numWorkers) {
+        this(inputQueue, outputQueue, processor, null, numWorkers, 1);
+    }
+    
+    private DataPipeline(BlockingQueue<I> inputQueue,
+                         BlockingQueue<O> outputQueue,
+                         Function<I, O> processor,
+                         BatchProcessor<I, O> batchProcessor,
+                         int numWorkers,
+                         int maxBatchSize) {
         this.inputQueue = inputQueue;
         this.outputQueue = outputQueue;
         this.processor = processor;
+        this.batchProcessor = batchProcessor;
         this.numWorkers = numWorkers;
-        this.workers = Executors.newFixedThreadPool(numWorkers);
+        this.maxBatchSize = maxBatchSize;
+        this.metrics = new StageMetrics(inputQueue, outputQueue, workerCount::get);
+    }
+    
+    /**
+     * Creates a batch-draining pipeline stage.
+     * 
+     * 📝 NOTE: Each wakeup drains up to maxBatchSize records with drainTo
+     *   (one lock acquisition for the whole batch) and hands them to the
+     *   batch processor as a List. Under heavy load the per-record queue
+     *   lock traffic drops by roughly a factor of maxBatchSize.
+     * 
+     * 💡 THINK: Batching trades latency for throughput. A lone record
+     *   is still processed immediately - drainTo never waits for a
+     *   batch to fill up.
+     * 
+     * @param inputQueue queue to read from
+     * @param outputQueue queue to write to
+     * @param batchProcessor transformation applied to each drained batch
+     * @param numWorkers number of parallel workers
+     * @param maxBatchSize maximum records handed to one processBatch call
+     */
+    public static <I, O> DataPipeline<I, O> batched(BlockingQueue<I> inputQueue,
+                                                     BlockingQueue<O> outputQueue,
+                                                     BatchProcessor<I, O> batchProcessor,
+                                                     int numWorkers,
+                                                     int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        return new DataPipeline<>(inputQueue, outputQueue, null, batchProcessor,
+                                  numWorkers, maxBatchSize);
+    }
+    
+    /**
+     * Emit outputs in input order even with numWorkers > 1.
+     * 
+     * 📝 NOTE: Each input is tagged with a sequence number as it is taken
+     *   from the queue. Results go through a bounded ReorderBuffer and are
+     *   released strictly in sequence order. In batch mode a whole drained
+     *   batch shares one sequence number.
+     * 
+     * 💡 THINK: The cost is a short critical section around the take
+     *   (to keep sequence order == queue order) and head-of-line blocking:
+     *   one slow record holds back at most reorderCapacity results.
+     * 
+     * Must be called before start().
+     * 
+     * @param reorderCapacity max records in flight between take and emit
+     * @return this stage
+     */
+    public DataPipeline<I, O> ordered(int reorderCapacity) {
+        checkNotStarted();
+        this.reorderBuffer = new ReorderBuffer<>(reorderCapacity);
+        return this;
+    }
+    
+    /**
+     * Reorder buffer used in ordered mode (for its size metrics), or null.
+     */
+    public ReorderBuffer<?> getReorderBuffer() {
+        return reorderBuffer;
+    }
+    
+    /**
+     * Route records to workers by key, preserving per-key order.
+     * 
+     * 📝 NOTE: A single dispatcher thread takes from the input queue and
+     *   hashes each key to one of numWorkers private queues. Every key always
+     *   lands on the same worker, so:
+     *   - records with the same key are processed in arrival order
+     *   - workers never contend on the shared input queue
+     *   - per-key state stays hot in one worker's cache
+     * 
+     * ⚠️ AVOID: Skewed keys. One hot key pins all its load to one worker -
+     *   check getPartitionDepths() if throughput looks capped.
+     * 
+     * Must be called before start(). Not combinable with ordered().
+     * 
+     * @param keyExtractor derives the routing key (null keys go to worker 0)
+     * @param partitionCapacity bound of each per-worker queue
+     * @return this stage
+     */
+    public DataPipeline<I, O> partitionedBy(Function<? super I, ?> keyExtractor, int partitionCapacity) {
+        checkNotStarted();
+        if (partitionCapacity <= 0) {
+            throw new IllegalArgumentException("partitionCapacity must be positive: " + partitionCapacity);
+        }
+        this.keyExtractor = keyExtractor;
+        this.partitionCapacity = partitionCapacity;
+        return this;
+    }
+    
+    /**
+     * Current depth of each worker's queue in partitioned mode (empty otherwise).
+     */
+    public int[] getPartitionDepths() {
+        List<BlockingQueue<I>> queues = partitions;
+        if (queues == null) {
+            return new int[0];
+        }
+        int[] depths = new int[queues.size()];
+        for (int i = 0; i < depths.length; i++) {
+            depths[i] = queues.get(i).size();
+        }
+        return depths;
+    }
+    
+    /**
+     * Let the worker count follow the load instead of provisioning for peak.
+     * 
+     * 📝 NOTE: A scaler samples the input queue every 100ms.
+     *   - Scale up: queue depth above queueDepthThreshold, or estimated wait
+     *     above maxWaitMillis, for 3 samples in a row → add one worker
+     *   - Scale down: a worker that found no input for idleCooldown retires
+     *     (never below minWorkers)
+     * 
+     * 🔑 HINT: Record wait time is estimated with Little's law:
+     *   wait ≈ queue depth / drain rate. No per-record timestamps needed.
+     * 
+     * 💡 THINK: Adding workers only helps when the stage itself is the
+     *   bottleneck. If workers are blocked on a full output queue, the fix
+     *   is downstream - which is why maxWorkers is a hard cap.
+     * 
+     * Must be called before start(). Replaces numWorkers; not combinable
+     * with partitionedBy() (partition count is fixed).
+     * 
+     * @return this stage
+     */
+    public DataPipeline<I, O> elastic(int minWorkers, int maxWorkers,
+                                      int queueDepthThreshold, long maxWaitMillis,
+                                      long idleCooldown, TimeUnit unit) {
+        checkNotStarted();
+        if (minWorkers <= 0 || maxWorkers < minWorkers) {
+            throw new IllegalArgumentException(
+                "Need 0 < minWorkers <= maxWorkers, got " + minWorkers + ".." + maxWorkers);
+        }
+        this.elastic = true;
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.queueDepthThreshold = queueDepthThreshold;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleCooldownNanos = unit.toNanos(idleCooldown);
+        return this;
+    }
+    
+    /**
+     * Number of workers currently running.
+     */
+    public int getWorkerCount() {
+        return workerCount.get();
+    }
+    
+    /**
+     * Run each record on its own virtual thread, up to maxInFlight at once.
+     * 
+     * 📝 NOTE: Meant for I/O-bound stages (lookups against slow stores).
+     *   A fixed pool of numWorkers platform threads caps in-flight requests
+     *   at numWorkers; here one dispatcher hands every record to a new
+     *   virtual thread and a Semaphore caps concurrency instead.
+     *   Requires a JDK 21+ runtime; on 17 it falls back to a cached pool
+     *   of platform threads (see VirtualThreads).
+     * 
+     * 💡 THINK: The semaphore is the backpressure. When maxInFlight lookups
+     *   are outstanding the dispatcher stops taking input, so the bounded
+     *   input queue fills and slows the producer - same as a full pool.
+     * 
+     * Must be called before start(). Replaces numWorkers; combinable with
+     * ordered(), not with batched(), partitionedBy() or elastic().
+     * getWorkerCount() reports the number of records in flight.
+     * 
+     * @param maxInFlight maximum records processed concurrently
+     * @return this stage
+     */
+    public DataPipeline<I, O> virtualThreads(int maxInFlight) {
+        checkNotStarted();
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+    
+    private void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("Pipeline stage already started");
+        }
     }
     
     /**
@@ -58,50 +318,647 @@ public class DataPipeline<I, O> {
      *   4. Handle shutdown signal (poison pill or interrupt)
      */
     public void start() {
+        checkNotStarted();
+        if (reorderBuffer != null && keyExtractor != null) {
+            throw new IllegalStateException("ordered() and partitionedBy() cannot be combined");
+        }
+        if (elastic && keyExtractor != null) {
+            throw new IllegalStateException("elastic() and partitionedBy() cannot be combined");
+        }
+        if (maxInFlight > 0 && (batchProcessor != null || keyExtractor != null || elastic)) {
+            throw new IllegalStateException(
+                "virtualThreads() cannot be combined with batched(), partitionedBy() or elastic()");
+        }
+        started = true;
+        
+        if (maxInFlight > 0) {
+            inFlight = new Semaphore(maxInFlight);
+            taskExecutor = VirtualThreads.newPerTaskExecutor();
+            workers = Executors.newSingleThreadExecutor();
+            workers.submit(this::runVirtualDispatcher);
+            return;
+        }
+        
+        if (elastic) {
+            workers = Executors.newCachedThreadPool();
+            for (int i = 0; i < minWorkers; i++) {
+                workerCount.incrementAndGet();
+                submitWorker(inputQueue);
+            }
+            scaler = workers.submit(this::runScaler);
+            return;
+        }
+        
+        if (keyExtractor != null) {
+            List<BlockingQueue<I>> queues = new ArrayList<>(numWorkers);
+            for (int i = 0; i < numWorkers; i++) {
+                queues.add(new LinkedBlockingQueue<>(partitionCapacity));
+            }
+            partitions = queues;
+            workers = Executors.newFixedThreadPool(numWorkers + 1);
+            workers.submit(this::runDispatcher);
+        } else {
+            workers = Executors.newFixedThreadPool(numWorkers);
+        }
+        
         for (int i = 0; i < numWorkers; i++) {
-            final int workerId = i;
-            workers.submit(() -> {
-                while (running) {
-                    try {
-                        // TODO: Take from input (with timeout for shutdown check)
-                        I input = inputQueue.poll(100, TimeUnit.MILLISECONDS);
-                        
-                        if (input == null) {
-                            continue; // Timeout, check running flag
-                        }
-                        
-                        // TODO: Process and output
-                        O output = processor.apply(input);
-                        
-                        if (output != null) {
-                            outputQueue.put(output);
+            workerCount.incrementAndGet();
+            submitWorker(partitions != null ? partitions.get(i) : inputQueue);
+        }
+    }
+    
+    private void submitWorker(BlockingQueue<I> source) {
+        final int workerId = nextWorkerId.getAndIncrement();
+        if (batchProcessor != null) {
+            workers.submit(() -> runBatchWorker(workerId, source));
+        } else {
+            workers.submit(() -> runWorker(workerId, source));
+        }
+    }
+    
+    /**
+     * Partitioned mode: move records from the shared input queue to the
+     * owning worker's queue.
+     * 
+     * 🔑 HINT: One dispatcher thread is what keeps per-key order - two
+     *   dispatchers could reorder records of the same key.
+     */
+    private void runDispatcher() {
+        int n = partitions.size();
+        while (running) {
+            try {
+                I input = nextInput(inputQueue, 0);
+                if (input == END_OF_INPUT) {
+                    endInput(false); // Everything is routed: partitions end once emptied
+                    break;
+                }
+                Object key = keyExtractor.apply(input);
+                int partition = key == null ? 0 : Math.floorMod(spread(key.hashCode()), n);
+                partitions.get(partition).put(input); // Blocks if that worker is behind
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("Dispatcher error: " + e.getMessage());
+            }
+        }
+        System.out.println("Dispatcher stopped");
+    }
+    
+    /**
+     * Mix high bits into low bits (like HashMap) so keys with poor
+     * hashCodes still spread across partitions.
+     */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Elastic mode: add a worker when queue pressure is sustained.
+     */
+    private void runScaler() {
+        int pressuredSamples = 0;
+        long lastTaken = metrics.recordsIn.sum();
+        while (running) {
+            try {
+                Thread.sleep(SCALE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long taken = metrics.recordsIn.sum();
+            double drainedPerMs = (taken - lastTaken) / (double) SCALE_INTERVAL_MS;
+            lastTaken = taken;
+            
+            int depth = inputQueue.size();
+            double estimatedWaitMs = depth == 0 ? 0
+                : drainedPerMs > 0 ? depth / drainedPerMs : Double.POSITIVE_INFINITY;
+            boolean pressured = depth > queueDepthThreshold || estimatedWaitMs > maxWaitMillis;
+            
+            pressuredSamples = pressured ? pressuredSamples + 1 : 0;
+            if (pressuredSamples >= SUSTAINED_SAMPLES && tryAddWorker()) {
+                pressuredSamples = 0; // Give the new worker time to make a difference
+            }
+        }
+    }
+    
+    private boolean tryAddWorker() {
+        while (true) {
+            int current = workerCount.get();
+            if (current >= maxWorkers || current == 0) {
+                return false; // 0: every worker already left on drain()
+            }
+            if (workerCount.compareAndSet(current, current + 1)) {
+                try {
+                    submitWorker(inputQueue);
+                } catch (RejectedExecutionException e) {
+                    workerCount.decrementAndGet(); // drain() shut the pool meanwhile
+                    return false;
+                }
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Elastic mode: called by a worker that found no input.
+     * 
+     * @return true if the worker should exit (count already decremented)
+     */
+    private boolean retireIfIdle(long lastActiveNanos) {
+        if (!elastic || System.nanoTime() - lastActiveNanos < idleCooldownNanos) {
+            return false;
+        }
+        while (true) {
+            int current = workerCount.get();
+            if (current <= minWorkers) {
+                return false;
+            }
+            if (workerCount.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Virtual-thread mode: take records and fork one task per record.
+     */
+    private void runVirtualDispatcher() {
+        List<I> claimed = new ArrayList<>(1); // ordered mode only
+        while (running) {
+            try {
+                inFlight.acquire();
+                boolean submitted = false;
+                try {
+                    long waitStart = System.nanoTime();
+                    long sequence = -1;
+                    I input;
+                    if (reorderBuffer != null) {
+                        sequence = claimInOrder(claimed, 1, 0);
+                        input = claimed.get(0);
+                        claimed.clear();
+                    } else {
+                        input = nextInput(inputQueue, 0);
+                    }
+                    if (input == END_OF_INPUT) {
+                        break; // drain(): tasks already forked still finish
+                    }
+                    long takenAt = System.nanoTime();
+                    metrics.idleWait.record(takenAt - waitStart);
+                    metrics.recordsIn.increment();
+                    metrics.sample(takenAt);
+                    
+                    final long taskSequence = sequence;
+                    workerCount.incrementAndGet();
+                    taskExecutor.execute(() -> runVirtualTask(input, taskSequence));
+                    submitted = true;
+                } finally {
+                    if (!submitted) {
+                        inFlight.release();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("Dispatcher error: " + e.getMessage());
+            }
+        }
+        System.out.println("Dispatcher stopped");
+    }
+    
+    private void runVirtualTask(I input, long sequence) {
+        long processStart = System.nanoTime();
+        try {
+            O output = null;
+            try {
+                output = processor.apply(input);
+            } catch (Exception e) {
+                metrics.errors.increment();
+                System.err.println("Task error: " + e.getMessage());
+            }
+            metrics.processingTime.record(System.nanoTime() - processStart);
+            if (output == null) {
+                metrics.recordsDropped.increment();
+            }
+            
+            if (sequence >= 0) {
+                reorderBuffer.complete(sequence, output, emitter);
+            } else if (output != null) {
+                outputQueue.put(output);
+                metrics.recordsOut.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workerCount.decrementAndGet();
+            inFlight.release();
+        }
+    }
+    
+    private void runWorker(int workerId, BlockingQueue<I> source) {
+        List<I> claimed = new ArrayList<>(1); // ordered mode only
+        StageMetrics.WorkerStats stats = metrics.registerWorker(workerId);
+        long lastActive = System.nanoTime();
+        while (running) {
+            try {
+                long waitStart = System.nanoTime();
+                long sequence = -1;
+                I input;
+                if (reorderBuffer != null) {
+                    sequence = claimInOrder(claimed, 1, idleTimeoutNanos());
+                    input = claimed.isEmpty() ? null : claimed.get(0);
+                    claimed.clear();
+                } else {
+                    input = nextInput(source, idleTimeoutNanos());
+                }
+                
+                if (input == null) {
+                    if (retireIfIdle(lastActive)) {
+                        metrics.unregisterWorker(workerId);
+                        System.out.println("Worker " + workerId + " retired");
+                        return;
+                    }
+                    continue; // Elastic timeout, but already down to minWorkers
+                }
+                if (input == END_OF_INPUT) {
+                    break;
+                }
+                long processStart = System.nanoTime();
+                lastActive = processStart;
+                metrics.idleWait.record(processStart - waitStart);
+                metrics.recordsIn.increment();
+                metrics.sample(processStart);
+                
+                // TODO: Process and output
+                if (sequence >= 0) {
+                    O output = applySafely(workerId, input);
+                    recordProcessed(stats, processStart, output == null ? 1 : 0);
+                    reorderBuffer.complete(sequence, output, emitter);
+                    continue;
+                }
+                
+                O output;
+                try {
+                    output = processor.apply(input);
+                } finally {
+                    recordProcessed(stats, processStart, 0);
+                }
+                
+                if (output != null) {
+                    outputQueue.put(output);
+                    metrics.recordsOut.increment();
+                } else {
+                    metrics.recordsDropped.increment();
+                }
+                
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // Log and continue - don't let one bad item kill the worker
+                metrics.errors.increment();
+                metrics.recordsDropped.increment();
+                System.err.println("Worker " + workerId + " error: " + e.getMessage());
+            }
+        }
+        exitWorker(workerId);
+    }
+    
+    /**
+     * Batch mode worker loop.
+     * 
+     * 🔑 HINT: Block for the first record only, then drainTo whatever
+     *   else is already queued - never wait for a batch to fill.
+     */
+    private void runBatchWorker(int workerId, BlockingQueue<I> source) {
+        List<I> batch = new ArrayList<>(maxBatchSize);
+        StageMetrics.WorkerStats stats = metrics.registerWorker(workerId);
+        long lastActive = System.nanoTime();
+        boolean ended = false;
+        while (running && !ended) {
+            try {
+                long waitStart = System.nanoTime();
+                long sequence = -1;
+                if (reorderBuffer != null) {
+                    sequence = claimInOrder(batch, maxBatchSize, idleTimeoutNanos());
+                } else {
+                    I first = nextInput(source, idleTimeoutNanos());
+                    if (first != null) {
+                        batch.add(first);
+                        if (first != END_OF_INPUT) {
+                            source.drainTo(batch, maxBatchSize - 1);
                         }
-                        
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
+                    }
+                }
+                // The marker only ever comes alone: the source was empty
+                ended = batch.remove(END_OF_INPUT);
+                
+                if (batch.isEmpty()) {
+                    if (!ended && retireIfIdle(lastActive)) {
+                        metrics.unregisterWorker(workerId);
+                        System.out.println("Worker " + workerId + " retired");
+                        return;
+                    }
+                    continue;
+                }
+                long processStart = System.nanoTime();
+                lastActive = processStart;
+                metrics.idleWait.record(processStart - waitStart);
+                metrics.recordsIn.add(batch.size());
+                metrics.sample(processStart);
+                
+                List<O> outputs = null;
+                if (sequence >= 0) {
+                    try {
+                        outputs = batchProcessor.processBatch(batch);
                     } catch (Exception e) {
-                        // Log and continue - don't let one bad item kill the worker
-                        System.err.println("Worker " + workerId + " error: " + e.getMessage());
+                        metrics.errors.increment();
+                        System.err.println("Worker " + workerId + " batch error: " + e.getMessage());
                     }
+                    recordProcessed(stats, processStart, batch.size() - sizeOf(outputs));
+                    // Complete even on failure, or the line stalls forever
+                    reorderBuffer.complete(sequence, outputs, emitter);
+                    continue;
+                }
+                
+                try {
+                    outputs = batchProcessor.processBatch(batch);
+                } finally {
+                    recordProcessed(stats, processStart, batch.size() - sizeOf(outputs));
+                }
+                if (outputs != null) {
+                    publishAll(outputs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // The whole batch is lost, but the worker keeps going
+                metrics.errors.increment();
+                System.err.println("Worker " + workerId + " batch error: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+        exitWorker(workerId);
+    }
+    
+    /**
+     * Elastic mode: how long a surplus worker waits for input before it
+     * considers retiring. 0 = wait in take() for as long as it takes.
+     */
+    private long idleTimeoutNanos() {
+        return elastic && workerCount.get() > minWorkers ? idleCooldownNanos : 0;
+    }
+    
+    /**
+     * Block for the next record: no timeout unless the worker may retire.
+     * 
+     * 🔑 HINT: How does drain() reach a thread parked in take() on an empty
+     *   queue without putting anything into it (the queue may only hold I)?
+     *   Waiters register in waitingForInput; endInput() sets the flag, then
+     *   interrupts whoever is registered, under the same lock. A waiter
+     *   that is woken this way after take() already returned a record
+     *   clears the interrupt, so only the wait is cut short, never the work.
+     * 
+     * @return the next record, null if the timeout elapsed, or END_OF_INPUT
+     *   once drain() ended the source and it is empty
+     */
+    @SuppressWarnings("unchecked")
+    private I nextInput(BlockingQueue<I> source, long timeoutNanos) throws InterruptedException {
+        Thread self = Thread.currentThread();
+        while (true) {
+            synchronized (waitLock) {
+                if (source == inputQueue ? inputEnded : partitionsEnded) {
+                    I input = source.poll();
+                    return input != null ? input : (I) END_OF_INPUT;
                 }
-                System.out.println("Worker " + workerId + " stopped");
-            });
+                waitingForInput.add(self);
+            }
+            I input;
+            try {
+                input = timeoutNanos > 0 ? source.poll(timeoutNanos, TimeUnit.NANOSECONDS) : source.take();
+            } catch (InterruptedException e) {
+                if (!wokenByEnd(self) || !running) {
+                    throw e; // stop(), or an interrupt that isn't ours
+                }
+                continue; // Source ended: take what's left, or the marker
+            }
+            if (wokenByEnd(self)) {
+                Thread.interrupted(); // Our wake-up landed after take() returned
+                if (!running) {
+                    self.interrupt(); // stop() came in meanwhile: keep its interrupt
+                }
+                if (input == null) {
+                    continue;
+                }
+            }
+            return input;
+        }
+    }
+    
+    /**
+     * @return true if endInput() interrupted this thread (it took it out of
+     *   waitingForInput); false if it's still registered, now removed
+     */
+    private boolean wokenByEnd(Thread self) {
+        synchronized (waitLock) {
+            return !waitingForInput.remove(self);
+        }
+    }
+    
+    /**
+     * Mark the input (or the partition queues) ended and wake every thread
+     * waiting for input, so they see it.
+     */
+    private void endInput(boolean input) {
+        if (input) {
+            inputEnded = true;
+        } else {
+            partitionsEnded = true;
+        }
+        synchronized (waitLock) {
+            for (Thread waiting : waitingForInput) {
+                waiting.interrupt();
+            }
+            waitingForInput.clear();
+        }
+    }
+    
+    /**
+     * A worker leaves: on interrupt (stop) or on END_OF_INPUT (drain).
+     */
+    private void exitWorker(int workerId) {
+        metrics.unregisterWorker(workerId);
+        workerCount.decrementAndGet();
+        System.out.println("Worker " + workerId + " stopped");
+    }
+    
+    private void recordProcessed(StageMetrics.WorkerStats stats, long processStart, int dropped) {
+        long elapsed = System.nanoTime() - processStart;
+        metrics.processingTime.record(elapsed);
+        stats.addBusy(elapsed);
+        if (dropped > 0) {
+            metrics.recordsDropped.add(dropped);
+        }
+    }
+    
+    private static int sizeOf(List<?> outputs) {
+        return outputs == null ? 0 : outputs.size();
+    }
+    
+    /**
+     * Ordered mode: take up to max inputs and claim their sequence number
+     * as one atomic step.
+     * 
+     * 📝 NOTE: Only one worker at a time waits on the input queue here;
+     *   the rest wait on takeLock. Processing still runs in parallel.
+     * 
+     * @param timeoutNanos how long to wait for input; 0 = until there is some
+     * @return the claimed sequence, or -1 if nothing was claimed: the wait
+     *   timed out (into stays empty) or the input ended (into holds END_OF_INPUT)
+     */
+    private long claimInOrder(List<I> into, int max, long timeoutNanos) throws InterruptedException {
+        takeLock.lockInterruptibly();
+        try {
+            reorderBuffer.awaitSlot(); // Buffer full: head-of-line record still processing
+            I first = nextInput(inputQueue, timeoutNanos);
+            if (first == null) {
+                return -1;
+            }
+            into.add(first);
+            if (first == END_OF_INPUT) {
+                return -1;
+            }
+            if (max > 1) {
+                inputQueue.drainTo(into, max - 1);
+            }
+            return reorderBuffer.claim();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+    
+    private O applySafely(int workerId, I input) {
+        try {
+            return processor.apply(input);
+        } catch (Exception e) {
+            // The sequence still has to complete, so map failure to "no output"
+            metrics.errors.increment();
+            System.err.println("Worker " + workerId + " error: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void emit(Object result) throws InterruptedException {
+        if (batchProcessor != null) {
+            publishAll((List<O>) result);
+        } else {
+            outputQueue.put((O) result);
+            metrics.recordsOut.increment();
+        }
+    }
+    
+    /**
+     * Publish a batch of outputs downstream.
+     * 
+     * 📝 NOTE: BlockingQueue has no blocking bulk insert (addAll throws when
+     *   the queue is full), so this still puts one by one to keep backpressure.
+     *   The saving comes from the input side and from one call per batch.
+     */
+    private void publishAll(List<O> outputs) throws InterruptedException {
+        for (O output : outputs) {
+            if (output != null) {
+                outputQueue.put(output);
+                metrics.recordsOut.increment();
+            }
         }
     }
     
     /**
-     * TODO: Stop the pipeline gracefully.
+     * Stop the stage now.
+     * 
+     * 📝 NOTE: Idle workers block in take() without a timeout, so an idle
+     *   stage costs no CPU and there is no polling interval to wait out:
+     *   stop() interrupts them (shutdownNow) and returns as soon as they
+     *   have left.
+     * 
+     * ⚠️ AVOID: Using stop() when every queued record must be processed.
+     *   Records still in the input queue stay there, and a record whose put
+     *   downstream is interrupted is lost. Use drain() for that.
      */
     public void stop() {
         running = false;
-        workers.shutdown();
+        unregisterMBean();
+        ExecutorService workers = this.workers;
+        if (workers == null) {
+            return; // Never started
+        }
+        workers.shutdownNow();
+        if (taskExecutor != null) {
+            taskExecutor.shutdownNow(); // Virtual-thread mode: in-flight records too
+        }
+        awaitQuietly(workers);
+        if (taskExecutor != null) {
+            awaitQuietly(taskExecutor);
+        }
+    }
+    
+    /**
+     * Process every record already queued, then stop.
+     * 
+     * 📝 NOTE: End of input is signalled out of band, not with a poison
+     *   pill: a marker object in the input queue would have to be an I
+     *   (a SpillingBlockingQueue has to serialize it) and would need room
+     *   in a full bounded queue. drain() sets a flag and wakes the threads
+     *   waiting for input (see nextInput). Workers keep taking until the
+     *   queue is empty, then leave; the partition dispatcher ends the
+     *   partition queues the same way once it has routed everything, and
+     *   in virtual-thread mode the dispatcher stops taking and the tasks
+     *   already forked finish. Elastic scaling is switched off first, so
+     *   the worker count can only shrink meanwhile.
+     * 
+     * 💡 THINK: "Empty" only means "done" if nothing more is coming, so call
+     *   drain() after producers are done and drain stages upstream first
+     *   (StagedPipeline.drain does) - each stage's output is then complete
+     *   before its consumer is drained.
+     * 
+     * @return true if everything was processed; false if the timeout
+     *   elapsed first (the stage is stopped anyway, as with stop())
+     */
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        ExecutorService workers = this.workers;
+        if (workers == null || !running) {
+            stop(); // Never started or already stopped: nothing left to finish
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (scaler != null) {
+            scaler.cancel(true);
+        }
+        boolean drained = false;
+        try {
+            endInput(true);
+            workers.shutdown(); // Workers leave once the queue is empty; no new ones are accepted
+            drained = workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (drained && taskExecutor != null) {
+                taskExecutor.shutdown();
+                drained = taskExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            stop(); // Immediate if drained; otherwise interrupts whatever is left
+        }
+        return drained;
+    }
+    
+    private static void awaitQuietly(ExecutorService executor) {
         try {
-            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
-                workers.shutdownNow();
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Stage threads still busy after stop()");
             }
         } catch (InterruptedException e) {
-            workers.shutdownNow();
             Thread.currentThread().interrupt();
         }
     }
@@ -109,13 +966,87 @@ public class DataPipeline<I, O> {
     public boolean isRunning() {
         return running;
     }
+    
+    /**
+     * Live metrics for this stage. Cheap to hold on to; values are read lazily.
+     */
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Expose this stage's metrics over JMX (jconsole, VisualVM, ...).
+     * The MBean is unregistered by stop().
+     * 
+     * @param stageName unique name, e.g. "parser"
+     */
+    public synchronized void registerMBean(String stageName) {
+        try {
+            ObjectName name = new ObjectName(
+                "com.concurrency.projects.pipeline:type=DataPipeline,name=" + ObjectName.quote(stageName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            mbeanName = name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register MBean for stage " + stageName, e);
+        }
+    }
+    
+    private synchronized void unregisterMBean() {
+        if (mbeanName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(mbeanName);
+        } catch (JMException e) {
+            System.err.println("Could not unregister " + mbeanName + ": " + e.getMessage());
+        }
+        mbeanName = null;
+    }
+    
+    /**
+     * This stage's processor as a Flow.Processor with request(n) backpressure,
+     * for wiring into non-blocking sources and sinks instead of queues.
+     * 
+     * 📝 NOTE: The returned FlowStage is independent of this stage's queues
+     *   and workers - it runs on the upstream publisher's threads.
+     */
+    public FlowStage<I, O> toFlowStage() {
+        if (processor == null) {
+            throw new IllegalStateException("Batch stages have no per-record processor");
+        }
+        return new FlowStage<>(processor);
+    }
+    
+    /**
+     * Start a fused multi-stage pipeline reading from the given queue.
+     * 
+     * 🔑 HINT: Adjacent map/filter stages with the same parallelism are
+     *   fused into one worker loop - see PipelineBuilder.
+     */
+    public static <T> PipelineBuilder<T, T> source(BlockingQueue<T> input) {
+        return new PipelineBuilder<>(input);
+    }
+    
+    /**
+     * Process a finite collection on a ForkJoinPool instead of through queues.
+     * 
+     * 🔑 HINT: For a file, Files.lines(path).spliterator() splits by byte
+     *   range, so chunks are read in parallel too (close the stream after).
+     */
+    public static <T> BulkPipeline<T, T> bulk(Collection<T> input) {
+        return new BulkPipeline<>(input.spliterator());
+    }
+    
+    public static <T> BulkPipeline<T, T> bulk(Spliterator<T> input) {
+        return new BulkPipeline<>(input);
+    }
 }
 
 /**
  * Example: Complete log processing pipeline.
  * 
  * 💡 THINK: How would you:
- *   - Add monitoring (items processed per second)?
  *   - Handle backpressure (slow downstream stage)?
  *   - Implement exactly-once processing?
  */
@@ -124,28 +1055,33 @@ class LogProcessingPipeline {
     public static void main(String[] args) throws InterruptedException {
         // Stage queues (bounded for backpressure!)
         BlockingQueue<String> rawLogs = new LinkedBlockingQueue<>(1000);
-        BlockingQueue<LogEntry> parsedLogs = new LinkedBlockingQueue<>(1000);
-        BlockingQueue<LogEntry> filteredLogs = new LinkedBlockingQueue<>(1000);
+        BlockingQueue<AlertRuleFilter.Match<LogEntry>> filteredLogs = new LinkedBlockingQueue<>(1000);
         
-        // Stage 1: Raw -> Parsed
-        DataPipeline<String, LogEntry> parser = new DataPipeline<>(
-            rawLogs, parsedLogs,
-            LogEntry::parse,
-            2
-        );
+        // Alert rules: every keyword of every rule is matched in one pass
+        Map<String, List<String>> rules = new LinkedHashMap<>();
+        rules.put("database", List.of("database connection failed", "connection refused"));
+        rules.put("failure", List.of("failed", "failing", "timeout"));
+        AlertRuleFilter<LogEntry> alertRules = new AlertRuleFilter<>(rules, true, entry -> entry.message);
         
-        // Stage 2: Parsed -> Filtered (only errors)
-        DataPipeline<LogEntry, LogEntry> filter = new DataPipeline<>(
-            parsedLogs, filteredLogs,
-            entry -> entry.level.equals("ERROR") ? entry : null,
-            1
-        );
+        // Parse + filter (errors matching a rule), fused into one worker loop:
+        // no intermediate queue between the stages.
+        StagedPipeline pipeline = DataPipeline.source(rawLogs)
+            .workers(2)
+            .map(LogEntry::parse)
+            .filter(entry -> entry.level == LogLevel.ERROR)
+            .map(alertRules)
+            .sink(filteredLogs);
         
         // Start pipeline
-        parser.start();
-        filter.start();
+        pipeline.registerMBeans("logs");
+        pipeline.start();
         
-        // Producer: feed raw logs
+        // Producer: feed raw logs (from a file if one is given, else samples).
+        // With --follow the file is tailed from its checkpoint instead of read once.
+        boolean follow = args.length > 1 && args[1].equals("--follow");
+        TailingLogFileSource tail = follow
+            ? new TailingLogFileSource(Path.of(args[0]), Path.of(args[0] + ".checkpoint"), 1, TimeUnit.SECONDS)
+            : null;
         Thread producer = new Thread(() -> {
             String[] sampleLogs = {
                 "2024-01-07 10:00:00 INFO Starting application",
@@ -156,10 +1092,31 @@ class LogProcessingPipeline {
             };
             
             try {
+                if (tail != null) {
+                    tail.follow(rawLogs);
+                    System.out.println("Followed " + args[0] + " to offset " + tail.getPosition());
+                    return;
+                }
+                if (args.length > 0 && args[0].endsWith(".gz")) {
+                    ParallelGzipSource source = new ParallelGzipSource(
+                        Path.of(args[0]), Runtime.getRuntime().availableProcessors());
+                    long lines = source.feed(rawLogs);
+                    System.out.println("Fed " + lines + " lines from " + args[0]);
+                    return;
+                }
+                if (args.length > 0) {
+                    MappedLogFileSource source = new MappedLogFileSource(
+                        Path.of(args[0]), Runtime.getRuntime().availableProcessors());
+                    long lines = source.feed(rawLogs);
+                    System.out.println("Fed " + lines + " lines from " + args[0]);
+                    return;
+                }
                 for (String log : sampleLogs) {
                     rawLogs.put(log);
                     Thread.sleep(100);
                 }
+            } catch (IOException e) {
+                System.err.println("Could not read " + args[0] + ": " + e.getMessage());
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
@@ -170,9 +1127,9 @@ class LogProcessingPipeline {
         Thread consumer = new Thread(() -> {
             try {
                 while (true) {
-                    LogEntry entry = filteredLogs.poll(500, TimeUnit.MILLISECONDS);
-                    if (entry != null) {
-                        System.out.println("ALERT: " + entry);
+                    AlertRuleFilter.Match<LogEntry> alert = filteredLogs.poll(500, TimeUnit.MILLISECONDS);
+                    if (alert != null) {
+                        System.out.println("ALERT " + alert.getRules() + ": " + alert.getRecord());
                     }
                 }
             } catch (InterruptedException e) {
@@ -184,32 +1141,21 @@ class LogProcessingPipeline {
         // Let it run
         Thread.sleep(2000);
         
-        // Shutdown
-        parser.stop();
-        filter.stop();
-        consumer.interrupt();
-        
-        System.out.println("Pipeline shutdown complete");
-    }
-    
-    static class LogEntry {
-        String timestamp;
-        String level;
-        String message;
-        
-        static LogEntry parse(String raw) {
-            // Simple parsing
-            String[] parts = raw.split(" ", 4);
-            LogEntry entry = new LogEntry();
-            entry.timestamp = parts[0] + " " + parts[1];
-            entry.level = parts[2];
-            entry.message = parts.length > 3 ? parts[3] : "";
-            return entry;
+        // Per-stage metrics (also visible in jconsole while running)
+        for (DataPipeline<?, ?> stage : pipeline.getStages()) {
+            System.out.println("Stage metrics: " + stage.getMetrics());
         }
         
-        @Override
-        public String toString() {
-            return String.format("[%s] %s: %s", timestamp, level, message);
+        // Shutdown: finish what the producer fed, then stop
+        if (tail != null) {
+            tail.stop(); // Lets it write its final checkpoint
+        }
+        producer.join();
+        if (!pipeline.drain(5, TimeUnit.SECONDS)) {
+            System.err.println("Pipeline did not drain in time");
         }
+        consumer.interrupt();
+        
+        System.out.println("Pipeline shutdown complete");
     }
 }
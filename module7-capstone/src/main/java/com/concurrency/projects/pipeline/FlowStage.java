@@ -0,0 +1,255 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * A pipeline stage as a java.util.concurrent.Flow.Processor.
+ *
+ * 📝 NOTE: DataPipeline stages talk through BlockingQueues, so a slow
+ *   consumer is felt as a producer thread parked in put(). With Flow, the
+ *   consumer instead says how much it can take - request(n) - and the
+ *   producer never sends more. No queue, no parked thread.
+ *
+ * How demand flows here:
+ *   - downstream request(n)  → forwarded upstream as request(n)
+ *   - upstream onNext(item)  → processed and handed straight downstream
+ *   - processor returned null (filtered) → request(1) upstream to replace
+ *     the unit of demand the dropped item used up
+ *   Demand passes through one-for-one, so the stage needs no buffer at all.
+ *
+ * ⚠️ AVOID: Calling request(1) straight from onNext for every filtered item.
+ *   A synchronous publisher delivers the next item inside that request(),
+ *   so a long run of filtered items recurses until the stack overflows.
+ *   Refills are trampolined instead: the outermost call loops, nested
+ *   calls only add to the count (the same bound Rule 3.3 asks of request).
+ *
+ * 💡 THINK: Why can this be buffer-free when SubmissionPublisher needs one?
+ *   A 1:1 map/filter never produces more items than it receives, so it can
+ *   always pass the downstream's own demand upstream. A flatMap could not.
+ *
+ * ⚠️ AVOID: Subscribing twice. This processor is unicast - one downstream.
+ *
+ * Chaining stages:
+ *   SubmissionPublisher<String> source = new SubmissionPublisher<>();
+ *   FlowStage<String, LogEntry> parse = new FlowStage<>(LogEntry::parse);
+ *   source.subscribe(parse);
+ *   parse.subscribe(alerts);   // alerts.request(n) paces the source
+ *
+ * @param <I> items received from upstream
+ * @param <O> items published downstream
+ */
+public class FlowStage<I, O> implements Flow.Processor<I, O> {
+
+    private final Function<? super I, ? extends O> processor;
+
+    // Guarded by this (subscriptions can arrive on any thread, in any order)
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super O> downstream;
+    private long pendingDemand = 0; // requested before upstream arrived
+    private boolean cancelled = false;
+    private Throwable terminalError;
+    private boolean completed = false;
+    private long refills = 0;          // filtered items whose demand is still to go back upstream
+    private boolean refilling = false; // a thread is in refill()'s loop
+
+    public FlowStage(Function<? super I, ? extends O> processor) {
+        this.processor = processor;
+    }
+
+    // ---- Publisher side (towards downstream) ----
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super O> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException();
+        }
+        Throwable error;
+        boolean complete;
+        boolean alreadySubscribed;
+        synchronized (this) {
+            alreadySubscribed = downstream != null;
+            if (!alreadySubscribed) {
+                downstream = subscriber;
+            }
+            error = terminalError;
+            complete = completed;
+        }
+        if (alreadySubscribed) {
+            subscriber.onSubscribe(NO_OP);
+            subscriber.onError(new IllegalStateException("FlowStage supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new DownstreamSubscription());
+        if (error != null) {
+            subscriber.onError(error);
+        } else if (complete) {
+            subscriber.onComplete();
+        }
+    }
+
+    private final class DownstreamSubscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                signalError(new IllegalArgumentException("request(n) needs n > 0, got " + n));
+                return;
+            }
+            Flow.Subscription up;
+            synchronized (FlowStage.this) {
+                if (cancelled) {
+                    return;
+                }
+                up = upstream;
+                if (up == null) {
+                    pendingDemand = addCapped(pendingDemand, n);
+                    return;
+                }
+            }
+            up.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            Flow.Subscription up;
+            synchronized (FlowStage.this) {
+                cancelled = true;
+                up = upstream;
+            }
+            if (up != null) {
+                up.cancel();
+            }
+        }
+    }
+
+    // ---- Subscriber side (from upstream) ----
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        long demand;
+        boolean cancel;
+        synchronized (this) {
+            if (upstream != null) {
+                cancel = true; // Rule 2.5: only one upstream
+                demand = 0;
+            } else {
+                upstream = subscription;
+                cancel = cancelled;
+                demand = pendingDemand;
+                pendingDemand = 0;
+            }
+        }
+        if (cancel) {
+            subscription.cancel();
+        } else if (demand > 0) {
+            subscription.request(demand);
+        }
+    }
+
+    @Override
+    public void onNext(I item) {
+        Flow.Subscriber<? super O> down;
+        Flow.Subscription up;
+        synchronized (this) {
+            if (cancelled || terminalError != null) {
+                return; // Rule 1.7: nothing after onError, even if already in flight
+            }
+            down = downstream;
+            up = upstream;
+        }
+
+        O output;
+        try {
+            output = processor.apply(item);
+        } catch (Throwable t) {
+            synchronized (this) {
+                cancelled = true; // Before onError, so no later onNext gets through
+            }
+            up.cancel();
+            signalError(t);
+            return;
+        }
+
+        if (output == null) {
+            refill(up); // Filtered: give the demand back
+        } else {
+            down.onNext(output);
+        }
+    }
+
+    /**
+     * Give one unit of demand back upstream without recursing: if this
+     * thread (or another) is already in the loop below, it picks it up.
+     */
+    private void refill(Flow.Subscription up) {
+        synchronized (this) {
+            refills++;
+            if (refilling) {
+                return;
+            }
+            refilling = true;
+        }
+        while (true) {
+            long n;
+            synchronized (this) {
+                n = refills;
+                refills = 0;
+                if (n == 0 || cancelled) {
+                    refilling = false;
+                    return;
+                }
+            }
+            up.request(n); // A synchronous publisher may call onNext → refill() in here
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        signalError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        Flow.Subscriber<? super O> down;
+        synchronized (this) {
+            if (completed || terminalError != null) {
+                return;
+            }
+            completed = true;
+            down = downstream;
+        }
+        if (down != null) {
+            down.onComplete();
+        }
+    }
+
+    private void signalError(Throwable throwable) {
+        Flow.Subscriber<? super O> down;
+        synchronized (this) {
+            if (completed || terminalError != null) {
+                return;
+            }
+            terminalError = throwable;
+            down = downstream;
+        }
+        if (down != null) {
+            down.onError(throwable);
+        }
+    }
+
+    private static long addCapped(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum; // Rule 3.17: saturate at Long.MAX_VALUE
+    }
+
+    private static final Flow.Subscription NO_OP = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+}
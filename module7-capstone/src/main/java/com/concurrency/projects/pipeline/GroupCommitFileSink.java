@@ -0,0 +1,334 @@
+package com.concurrency.projects.pipeline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Durable file sink that pays one fsync per group of records, not per record.
+ *
+ * 📝 NOTE: write() + force() per record costs a full disk flush every time
+ *   (milliseconds on most disks), capping throughput at a few hundred
+ *   records/s no matter how many threads write. Group commit:
+ *   1. writers enqueue encoded records and get a future back
+ *   2. one committer thread takes everything that queued up - until the
+ *      group reaches maxGroupRecords / maxGroupBytes or maxDelay passes -
+ *   3. writes the group with one gathering FileChannel.write(ByteBuffer[])
+ *   4. calls force() once, then completes every future in the group
+ *   A completed future means the record is on disk, at 1/groupSize the fsync cost.
+ *
+ * Use as the last stage of a pipeline (only durable records go downstream):
+ *   DataPipeline.batched(entries, durable, sink, 1, 512)          (batch = group)
+ *   new DataPipeline<>(entries, durable, sink::writeDurably, 1).virtualThreads(512)
+ *
+ * 💡 THINK: Why does maxDelay add latency but often raise throughput?
+ *   Waiting briefly for more records makes groups bigger, and the fsync
+ *   cost is the same for 1 record as for 500.
+ *
+ * ⚠️ AVOID: Skipping close(). The committer is a daemon thread, so a
+ *   forgotten sink doesn't keep the JVM alive - but records still queued
+ *   when the JVM exits are never written. close() commits them first.
+ *
+ * ⚠️ AVOID: Retrying after a failed force(). The kernel may already have
+ *   dropped the dirty pages, so a later force() can succeed without the data
+ *   being on disk. A failed commit fails its group and every later write.
+ */
+public class GroupCommitFileSink<T> implements BatchProcessor<T, T>, AutoCloseable {
+
+    /**
+     * One encoded record waiting for its group to be committed.
+     */
+    private static final class Pending {
+        final ByteBuffer bytes;
+        final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        Pending(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private static final Pending CLOSE = new Pending(ByteBuffer.allocate(0));
+
+    private final FileChannel channel;
+    private final Function<? super T, byte[]> encoder;
+    private final int maxGroupRecords;
+    private final long maxGroupBytes;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending> pending;
+    private final Thread committer;
+
+    // Writers enqueue under the read lock, close() flips closed under the write
+    // lock: no record can be queued behind the CLOSE marker and be forgotten.
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed = false;
+    private volatile IOException failure; // set once; the file is suspect after that
+
+    private final LongAdder groupsCommitted = new LongAdder();
+    private final LongAdder recordsCommitted = new LongAdder();
+
+    /**
+     * @param file appended to (created if missing)
+     * @param encoder record → bytes (include the newline for line files)
+     * @param maxGroupRecords commit once this many records are collected
+     * @param maxGroupBytes commit once this many bytes are collected
+     * @param maxDelay longest a record waits for its group to fill
+     */
+    public GroupCommitFileSink(Path file, Function<? super T, byte[]> encoder,
+                               int maxGroupRecords, long maxGroupBytes,
+                               long maxDelay, TimeUnit unit) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+            "group-commit-" + file.getFileName(), encoder, maxGroupRecords, maxGroupBytes, maxDelay, unit);
+    }
+
+    /**
+     * Commit into an already open channel (tests wrap one to watch force()).
+     * The sink owns the channel and closes it.
+     */
+    GroupCommitFileSink(FileChannel channel, String threadName, Function<? super T, byte[]> encoder,
+                        int maxGroupRecords, long maxGroupBytes, long maxDelay, TimeUnit unit) throws IOException {
+        if (maxGroupRecords <= 0 || maxGroupBytes <= 0) {
+            channel.close(); // We own it from here on
+            throw new IllegalArgumentException("Group limits must be positive");
+        }
+        this.channel = channel;
+        this.encoder = encoder;
+        this.maxGroupRecords = maxGroupRecords;
+        this.maxGroupBytes = maxGroupBytes;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.pending = new LinkedBlockingQueue<>(maxGroupRecords * 4); // Backpressure on writers
+        this.committer = new Thread(this::runCommitter, threadName);
+        committer.setDaemon(true); // Never the reason the JVM stays up (see close())
+        committer.start();
+    }
+
+    /**
+     * Queue a record for the next group.
+     *
+     * @return future completed once the record's group is fsynced
+     *   (exceptionally if the commit failed)
+     */
+    public CompletableFuture<Void> write(T record) throws InterruptedException {
+        IOException failed = failure;
+        if (failed != null) {
+            return CompletableFuture.failedFuture(failed);
+        }
+        Pending entry = new Pending(ByteBuffer.wrap(encoder.apply(record))); // Encode on the caller's thread
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Sink closed");
+            }
+            pending.put(entry);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return entry.committed;
+    }
+
+    /**
+     * Write and wait for the commit. Returns the record, so it can be used as
+     * a DataPipeline processor that only lets durable records through.
+     */
+    public T writeDurably(T record) {
+        try {
+            write(record).get();
+            return record;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for commit", e);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Write the whole batch and return it once all of it is durable.
+     */
+    @Override
+    public List<T> processBatch(List<T> batch) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(batch.size());
+        try {
+            for (T record : batch) {
+                futures.add(write(record));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted queueing batch", e);
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return new ArrayList<>(batch); // The worker reuses its batch list
+    }
+
+    private void runCommitter() {
+        List<Pending> group = new ArrayList<>(maxGroupRecords);
+        boolean closing = false;
+        try {
+            while (!closing) {
+                Pending first = pending.take(); // Idle until a record arrives
+                if (first == CLOSE) {
+                    break;
+                }
+                group.add(first);
+                long bytes = first.bytes.remaining();
+                long deadline = System.nanoTime() + maxDelayNanos;
+
+                // Fill the group: whatever is queued now, then wait up to the deadline
+                while (group.size() < maxGroupRecords && bytes < maxGroupBytes) {
+                    Pending next = pending.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0 || (next = pending.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                            break;
+                        }
+                    }
+                    if (next == CLOSE) {
+                        closing = true; // Commit what we have, then stop
+                        break;
+                    }
+                    group.add(next);
+                    bytes += next.bytes.remaining();
+                }
+
+                commit(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            failAll(group, new ClosedChannelException()); // Only if interrupted mid-group
+        }
+    }
+
+    /**
+     * One gathering write + one fsync for the whole group.
+     */
+    private void commit(List<Pending> group) {
+        if (failure != null) {
+            failAll(group, failure);
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[group.size()];
+        long total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = group.get(i).bytes;
+            total += buffers[i].remaining();
+        }
+        try {
+            int first = 0;
+            while (total > 0) {
+                total -= channel.write(buffers, first, buffers.length - first); // May be partial (IOV_MAX)
+                while (first < buffers.length && !buffers[first].hasRemaining()) {
+                    first++;
+                }
+            }
+            channel.force(false); // Data only; metadata like mtime can lag
+        } catch (IOException e) {
+            failure = e;
+            failAll(group, e);
+            return;
+        }
+        groupsCommitted.increment();
+        recordsCommitted.add(group.size());
+        for (Pending entry : group) {
+            entry.committed.complete(null);
+        }
+    }
+
+    private static void failAll(List<Pending> group, Throwable cause) {
+        for (Pending entry : group) {
+            entry.committed.completeExceptionally(cause);
+        }
+        group.clear();
+    }
+
+    /**
+     * Commit everything already written, then close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            pending.put(CLOSE);
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            committer.interrupt();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public long getGroupsCommitted() {
+        return groupsCommitted.sum();
+    }
+
+    public long getRecordsCommitted() {
+        return recordsCommitted.sum();
+    }
+
+    /**
+     * Average group size so far - how many records shared each fsync.
+     */
+    public double getAverageGroupSize() {
+        long groups = groupsCommitted.sum();
+        return groups == 0 ? 0 : (double) recordsCommitted.sum() / groups;
+    }
+
+    /**
+     * Demo: 8 writers, 2000 durable records each, into a temp file.
+     */
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createTempFile("group-commit", ".log");
+        try (GroupCommitFileSink<String> sink = new GroupCommitFileSink<>(file,
+                line -> (line + "\n").getBytes(StandardCharsets.UTF_8),
+                512, 1 << 20, 2, TimeUnit.MILLISECONDS)) {
+
+            long start = System.nanoTime();
+            List<Thread> writers = new ArrayList<>();
+            for (int w = 0; w < 8; w++) {
+                int writer = w;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        sink.writeDurably("writer-" + writer + " record-" + i);
+                    }
+                });
+                writers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : writers) {
+                thread.join();
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            System.out.printf("%d records in %d ms, %d fsyncs (%.1f records/fsync)%n",
+                sink.getRecordsCommitted(), elapsedMs, sink.getGroupsCommitted(),
+                sink.getAverageGroupSize());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
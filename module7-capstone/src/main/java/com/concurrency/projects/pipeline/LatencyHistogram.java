@@ -0,0 +1,91 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free, allocation-free latency histogram with power-of-two buckets.
+ *
+ * 📝 NOTE: Bucket b counts values in [2^(b-1), 2^b) nanoseconds.
+ *   64 buckets cover everything from 1ns to centuries, and finding the
+ *   bucket is a single numberOfLeadingZeros - no search, no allocation.
+ *
+ * 💡 THINK: Power-of-two buckets trade precision for cost: a reported
+ *   p99 of "≤ 2^20 ns" means somewhere in 0.5ms..1ms. That is plenty to
+ *   find which stage is the bottleneck, which is what this is for.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record one observation. Safe to call from many threads.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0; // nanoTime is monotonic, but be defensive
+        }
+        int bucket = Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(nanos));
+        counts.incrementAndGet(bucket);
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public long getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / n;
+    }
+
+    /**
+     * Upper bound of the bucket containing the given percentile.
+     *
+     * @param percentile between 0 and 100
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = counts.get(b);
+            total += snapshot[b];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * (percentile / 100.0));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += snapshot[b];
+            if (seen >= rank) {
+                long upper = b == 0 ? 0 : (b >= 63 ? Long.MAX_VALUE : (1L << b) - 1);
+                return Math.min(upper, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Copy of the raw bucket counts (index b = values below 2^b ns).
+     */
+    public long[] getBucketCounts() {
+        long[] snapshot = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = counts.get(b);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,42 @@
+package com.concurrency.projects.pipeline;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A parsed log line, as used by the log-processing examples
+ * (LogProcessingPipeline, the WindowedAggregator demo, the benchmarks).
+ */
+class LogEntry {
+    private static final LogLineParser PARSER = LogLineParser.UTC;
+    private static final ThreadLocal<LogLineParser.Line> LINE =
+        ThreadLocal.withInitial(LogLineParser.Line::new);
+    private static final DateTimeFormatter FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+    
+    long timestamp;   // epoch millis (UTC)
+    LogLevel level;
+    String message;
+    
+    /**
+     * 📝 NOTE: Fields are read in place by LogLineParser - no split(),
+     *   no timestamp concatenation. The only allocations left are the
+     *   entry itself and the message String. Stages that don't need an
+     *   object per line can use LogLineParser directly.
+     */
+    static LogEntry parse(String raw) {
+        LogLineParser.Line line = PARSER.parse(raw, LINE.get());
+        LogEntry entry = new LogEntry();
+        entry.timestamp = line.epochMillis();
+        entry.level = line.level();
+        entry.message = raw.substring(line.messageStart(), line.messageEnd());
+        return entry;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("[%s] %s: %s",
+            FORMAT.format(Instant.ofEpochMilli(timestamp)), level, message);
+    }
+}
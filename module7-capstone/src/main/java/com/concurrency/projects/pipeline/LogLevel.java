@@ -0,0 +1,44 @@
+package com.concurrency.projects.pipeline;
+
+/**
+ * Severity of a log line.
+ *
+ * 📝 NOTE: An enum instead of a String means level checks are a reference
+ *   comparison (entry.level == LogLevel.ERROR) rather than equals(), and
+ *   severity comparisons are an ordinal comparison.
+ */
+public enum LogLevel {
+    TRACE, DEBUG, INFO, WARN, ERROR, FATAL,
+    /** Anything we did not recognise. */
+    UNKNOWN;
+
+    // values() clones the array on every call - keep one copy
+    private static final LogLevel[] KNOWN = {TRACE, DEBUG, INFO, WARN, ERROR, FATAL};
+
+    /**
+     * Match chars [start, end) against the level names without creating a String.
+     */
+    public static LogLevel parse(CharSequence text, int start, int end) {
+        int length = end - start;
+        for (LogLevel level : KNOWN) {
+            String name = level.name();
+            if (name.length() == length && regionMatches(text, start, name)) {
+                return level;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean regionMatches(CharSequence text, int start, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (text.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isAtLeast(LogLevel other) {
+        return this != UNKNOWN && ordinal() >= other.ordinal();
+    }
+}
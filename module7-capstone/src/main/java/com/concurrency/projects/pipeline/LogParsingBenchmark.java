@@ -0,0 +1,89 @@
+package com.concurrency.projects.pipeline;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Benchmark: bytes allocated and time per parsed log line.
+ *
+ * Compares:
+ *   1. split-based parsing (the original LogEntry.parse)
+ *   2. LogEntry.parse on top of LogLineParser (entry + message only)
+ *   3. LogLineParser into a reused Line (flyweight, should be ~0 bytes)
+ *
+ * 📝 NOTE: Allocation is measured with the HotSpot per-thread allocation
+ *   counter (com.sun.management.ThreadMXBean), so it counts exactly what
+ *   this thread allocated - no GC log parsing, no extra dependencies.
+ *
+ * ⚠️ AVOID: Trusting the first numbers. Each variant is warmed up first
+ *   so the JIT has compiled (and escape-analysed) the parse path.
+ *
+ * Run: mvn -q exec:java -Dexec.mainClass=com.concurrency.projects.pipeline.LogParsingBenchmark
+ */
+class LogParsingBenchmark {
+
+    private static final int LINES = 1_000_000;
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final String[] SAMPLE = {
+        "2024-01-07 10:00:00 INFO Starting application",
+        "2024-01-07 10:00:01 ERROR Database connection failed",
+        "2024-01-07 10:00:02.250 WARN Retrying in 500ms",
+        "2024-01-07 10:00:03 ERROR Still failing",
+        "2024-01-07 10:00:04 DEBUG Connected successfully"
+    };
+
+    interface Variant {
+        long run(String line);
+    }
+
+    public static void main(String[] args) {
+        LogLineParser.Line reused = new LogLineParser.Line();
+
+        Variant split = line -> {
+            String[] parts = line.split(" ", 4);
+            String timestamp = parts[0] + " " + parts[1];
+            String level = parts[2];
+            String message = parts.length > 3 ? parts[3] : "";
+            return timestamp.length() + level.length() + message.length();
+        };
+        Variant entry = line -> {
+            LogEntry parsed = LogEntry.parse(line);
+            return parsed.timestamp + parsed.level.ordinal() + parsed.message.length();
+        };
+        Variant flyweight = line -> {
+            LogLineParser.Line parsed = LogLineParser.UTC.parse(line, reused);
+            return parsed.epochMillis() + parsed.level().ordinal() + parsed.messageStart();
+        };
+
+        measure("split + concat   ", split);
+        measure("LogEntry.parse   ", entry);
+        measure("LogLineParser    ", flyweight);
+    }
+
+    private static void measure(String name, Variant variant) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(variant);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long checksum = run(variant);
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.printf("%s %6.1f ns/line %8.1f bytes/line (checksum %d)%n",
+            name, elapsed / (double) LINES, bytes / (double) LINES, checksum);
+    }
+
+    private static long run(Variant variant) {
+        long checksum = 0;
+        for (int i = 0; i < LINES; i++) {
+            checksum += variant.run(SAMPLE[i % SAMPLE.length]);
+        }
+        return checksum;
+    }
+}
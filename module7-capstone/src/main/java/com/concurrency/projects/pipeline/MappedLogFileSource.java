@@ -0,0 +1,271 @@
+package com.concurrency.projects.pipeline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pipeline source that reads a log file through memory-mapped buffers.
+ *
+ * 📝 NOTE: BufferedReader copies every byte twice before you see a line
+ *   (kernel → byte buffer → char buffer → String). Mapping the file lets
+ *   us scan for '\n' directly in the page cache and decode each line once.
+ *
+ * 📝 NOTE: Large files are split into byte ranges, one per thread.
+ *   Range boundaries are moved forward to the next '\n' so no line is cut.
+ *   A MappedByteBuffer is limited to 2GB, so each range is mapped in
+ *   windows of at most MAX_WINDOW bytes.
+ *
+ * ⚠️ AVOID: Assuming global line order with parallelism > 1.
+ *   Lines within one range keep their order; lines from different ranges
+ *   interleave. Use parallelism 1 (or an ordered/partitioned stage keyed
+ *   on something in the record) when order matters.
+ *
+ * Lines longer than MAX_LINE bytes (a binary blob, a missing newline) are
+ * skipped and counted in getSkippedLines(), not fed: one bad line
+ * shouldn't abort a multi-GB read.
+ */
+public class MappedLogFileSource {
+
+    static final int MAX_WINDOW = 1 << 30; // 1GB per mapping
+    static final int MAX_LINE = 1 << 20; // Longer lines are skipped
+
+    private final Path file;
+    private final int parallelism;
+    private final int windowSize;
+    private final LongAdder skippedLines = new LongAdder();
+
+    /**
+     * @param file the log file to read
+     * @param parallelism number of byte ranges read concurrently
+     */
+    public MappedLogFileSource(Path file, int parallelism) {
+        this(file, parallelism, MAX_WINDOW);
+    }
+
+    /**
+     * Smaller windows let tests cross window boundaries without a 1GB file.
+     * Lines longer than the window are skipped like lines over MAX_LINE.
+     */
+    MappedLogFileSource(Path file, int parallelism, int windowSize) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (windowSize <= 0 || windowSize > MAX_WINDOW) {
+            throw new IllegalArgumentException("windowSize must be in 1.." + MAX_WINDOW + ": " + windowSize);
+        }
+        this.file = file;
+        this.parallelism = parallelism;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Lines skipped so far because they were longer than MAX_LINE bytes.
+     */
+    public long getSkippedLines() {
+        return skippedLines.sum();
+    }
+
+    /**
+     * Put every non-empty line of the file into the queue.
+     * Blocks until the whole file has been fed (backpressure from the queue).
+     *
+     * @return number of lines fed
+     */
+    public long feed(BlockingQueue<String> out) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> ranges = splitRanges(channel, parallelism);
+            if (ranges.size() == 1) {
+                long[] range = ranges.get(0);
+                return feedRange(channel, range[0], range[1], out);
+            }
+
+            ExecutorService readers = Executors.newFixedThreadPool(ranges.size());
+            try {
+                List<Future<Long>> results = new ArrayList<>();
+                for (long[] range : ranges) {
+                    Callable<Long> reader = () -> feedRange(channel, range[0], range[1], out);
+                    results.add(readers.submit(reader));
+                }
+                long total = 0;
+                for (Future<Long> result : results) {
+                    total += result.get();
+                }
+                return total;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                throw new IllegalStateException("Reader failed", cause);
+            } finally {
+                readers.shutdownNow();
+                awaitReaders(readers); // Before try-with-resources closes the channel under them
+            }
+        }
+    }
+
+    /**
+     * Wait for interrupted readers to leave. They stop at their next put(),
+     * so this is quick; a caller's interrupt is kept for later, because
+     * returning early would close the channel while they still use it.
+     */
+    private static void awaitReaders(ExecutorService readers) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (readers.awaitTermination(5, TimeUnit.SECONDS)) {
+                    break;
+                }
+                System.err.println("Log readers still busy after shutdownNow()");
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Split the file into up to n ranges [start, end) that begin at line starts.
+     */
+    static List<long[]> splitRanges(FileChannel channel, int n) throws IOException {
+        long size = channel.size();
+        List<long[]> ranges = new ArrayList<>(n);
+        long start = 0;
+        for (int i = 1; i <= n && start < size; i++) {
+            long end = i == n ? size : nextLineStart(channel, size * i / n, size);
+            if (end > start) {
+                ranges.add(new long[] {start, end});
+                start = end;
+            }
+        }
+        if (ranges.isEmpty()) {
+            ranges.add(new long[] {0, 0});
+        }
+        return ranges;
+    }
+
+    /**
+     * Position just after the first '\n' at or after pos (or size if none).
+     */
+    private static long nextLineStart(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (pos < size) {
+            probe.clear();
+            int read = channel.read(probe, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    private long feedRange(FileChannel channel, long start, long end,
+                           BlockingQueue<String> out) throws IOException, InterruptedException {
+        LineEmitter emitter = new LineEmitter(out, Math.min(MAX_LINE, this.windowSize));
+        boolean skipping = false; // Inside a line longer than a whole window
+        long pos = start;
+        try {
+            while (pos < end) {
+                int windowSize = (int) Math.min(this.windowSize, end - pos);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, windowSize);
+                boolean lastWindow = pos + windowSize == end;
+
+                int lineStart = 0;
+                for (int i = 0; i < windowSize; i++) {
+                    if (window.get(i) == '\n') {
+                        if (skipping) {
+                            skipping = false; // End of the overlong line: drop it
+                        } else {
+                            emitter.emit(window, lineStart, i);
+                        }
+                        lineStart = i + 1;
+                    }
+                }
+
+                if (lastWindow) {
+                    if (lineStart < windowSize && !skipping) { // Last line without a trailing '\n'
+                        emitter.emit(window, lineStart, windowSize);
+                    }
+                    pos = end;
+                } else if (lineStart == 0) {
+                    // No '\n' in a whole window: the line can't fit, scan on for its end
+                    if (!skipping) {
+                        emitter.skipped++;
+                        skipping = true;
+                    }
+                    pos += windowSize;
+                } else {
+                    pos += lineStart; // Remap from the start of the partial line
+                }
+            }
+            return emitter.lines;
+        } finally {
+            skippedLines.add(emitter.skipped);
+        }
+    }
+
+    /**
+     * Decodes lines of one range. Owned by a single reader thread.
+     */
+    private static final class LineEmitter {
+        private final BlockingQueue<String> out;
+        private final int maxLine;
+        private byte[] scratch = new byte[256]; // Grows to the longest line seen
+        long lines = 0;
+        long skipped = 0;
+
+        LineEmitter(BlockingQueue<String> out, int maxLine) {
+            this.out = out;
+            this.maxLine = maxLine;
+        }
+
+        /**
+         * Decode bytes [from, to) of the window as one line and queue it.
+         */
+        void emit(MappedByteBuffer window, int from, int to) throws IOException, InterruptedException {
+            if (to > from && window.get(to - 1) == '\r') {
+                to--; // Windows line endings
+            }
+            int length = to - from;
+            if (length <= 0) {
+                return; // Skip blank lines
+            }
+            if (length > maxLine) {
+                skipped++;
+                return;
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(from, scratch, 0, length);
+            out.put(new String(scratch, 0, length, StandardCharsets.UTF_8));
+            lines++;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from object keys to primitive long values.
+ *
+ * 📝 NOTE: HashMap<K, Long> boxes every value and allocates a node per
+ *   entry; counting with merge(key, 1L, Long::sum) allocates a new Long on
+ *   nearly every increment. Here keys and values sit in two parallel arrays
+ *   and an increment is a probe plus a long addition - no allocation once
+ *   the table has grown to fit the key set.
+ *
+ * Not thread-safe: meant to be owned by a single worker.
+ */
+final class ObjectLongMap<K> {
+
+    /**
+     * Receives each entry during forEach without boxing the value.
+     */
+    interface EntryConsumer<K> {
+        void accept(K key, long value);
+    }
+
+    private Object[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    ObjectLongMap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedKeys * 2 - 1)) << 1;
+        keys = new Object[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Add delta to the value for key (absent keys start at 0).
+     */
+    void add(K key, long delta) {
+        int index = indexOf(key);
+        if (keys[index] == null) {
+            keys[index] = key;
+            values[index] = delta;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        } else {
+            values[index] += delta;
+        }
+    }
+
+    long get(K key) {
+        int index = indexOf(key);
+        return keys[index] == null ? 0 : values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(EntryConsumer<K> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                consumer.accept((K) keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Empty the map but keep its arrays for reuse.
+     */
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, null);
+            size = 0;
+        }
+    }
+
+    private int indexOf(Object key) {
+        int h = key.hashCode() * 0x9E3779B9; // Fibonacci hashing spreads clustered hashCodes
+        int index = (h ^ (h >>> 16)) & mask;
+        while (keys[index] != null && !keys[index].equals(key)) {
+            index = (index + 1) & mask; // Linear probing
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        Object[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new Object[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,589 @@
+package com.concurrency.projects.pipeline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Pipeline source that inflates a multi-member gzip file on several threads.
+ *
+ * 📝 NOTE: A .gz file may be several gzip members back to back (what
+ *   pigz, bgzip or `cat a.gz b.gz` produce). Each member is independent,
+ *   so members can be inflated in parallel - but where does the next one
+ *   start? Only after inflating the previous one do we know for sure.
+ *
+ * Speculative approach:
+ *   1. scan the compressed bytes for header magic 1f 8b 08 → candidates
+ *   2. inflate each candidate on a worker; a real member passes its
+ *      CRC32 and length checks and tells us where it ends
+ *   3. consume results in file order: the member at offset 0 ends at e0,
+ *      so the next member is the candidate at exactly e0, and so on.
+ *      Candidates that fall inside a member (magic bytes that happened to
+ *      appear in compressed data) are never at an expected offset and are
+ *      simply discarded.
+ *
+ * 📝 NOTE: Lines come out in file order, from the one thread calling feed(),
+ *   so an ordered() downstream stage sees them in order. Workers split their
+ *   member into lines themselves; only a line cut across two members is
+ *   stitched together by the feeding thread.
+ *
+ * 📝 NOTE: A worker buffers at most maxBuffered (8MB) of inflated data. A
+ *   bigger member (e.g. one half of `cat a.gz b.gz`) is inflated again by
+ *   the feeding thread, streaming its lines straight into the queue. That
+ *   member is sequential, but memory stays bounded by the members in
+ *   flight: 2 × parallelism × maxBuffered.
+ *
+ * 📝 NOTE: Bytes after the last member that don't start another member
+ *   (zero padding, garbage) are ignored, as gzip -d does, and counted in
+ *   getTrailingBytes().
+ *
+ * Lines longer than MAX_LINE bytes are skipped and counted in
+ * getSkippedLines(), as in MappedLogFileSource - whether the line sits
+ * inside one member or is cut across several.
+ *
+ * 💡 THINK: A single-member file (plain `gzip`) has only one candidate, so
+ *   it inflates on one thread. Parallelism comes from having many members.
+ */
+public class ParallelGzipSource {
+
+    private static final int MAX_LINE = MappedLogFileSource.MAX_LINE;
+    private static final int MAX_BUFFERED = 8 << 20;
+    private static final int SCAN_BUFFER = 1 << 20;
+    private static final int CHUNK = 64 * 1024; // compressed input / inflated output per step
+    private static final int FTEXT_RESERVED = 0xE0; // FLG bits that must be zero
+    private static final int FHCRC = 0x02, FEXTRA = 0x04, FNAME = 0x08, FCOMMENT = 0x10;
+
+    /**
+     * One inflated member, already split at '\n'.
+     */
+    private static final class Member {
+        static final Member UNBUFFERED = new Member(-1, null, null, null, false, 0);
+
+        final long end;     // offset just after the trailer = next member start
+        final byte[] head;  // bytes before the first '\n' (continue previous line)
+        final List<String> lines;
+        final byte[] tail;  // bytes after the last '\n' (continued by next member)
+        final boolean hasNewline;
+        final int skipped;  // whole lines over MAX_LINE left out of lines
+
+        Member(long end, byte[] head, List<String> lines, byte[] tail, boolean hasNewline, int skipped) {
+            this.end = end;
+            this.head = head;
+            this.lines = lines;
+            this.tail = tail;
+            this.hasNewline = hasNewline;
+            this.skipped = skipped;
+        }
+    }
+
+    /**
+     * Receives a member's inflated bytes as they come out.
+     */
+    private interface InflatedSink {
+        /**
+         * @return false to stop inflating (the member is too big to buffer)
+         */
+        boolean accept(byte[] data, int length) throws IOException, InterruptedException;
+    }
+
+    private final Path file;
+    private final int parallelism;
+    private final int maxBuffered;
+    private volatile long trailingBytes = 0;
+    private final LongAdder skippedLines = new LongAdder();
+
+    /**
+     * @param file the .gz file to read
+     * @param parallelism number of members inflated concurrently
+     */
+    public ParallelGzipSource(Path file, int parallelism) {
+        this(file, parallelism, MAX_BUFFERED);
+    }
+
+    /**
+     * Custom per-worker buffer limit (tests use a tiny one to force streaming).
+     */
+    ParallelGzipSource(Path file, int parallelism, int maxBuffered) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxBuffered <= 0) {
+            throw new IllegalArgumentException("maxBuffered must be positive: " + maxBuffered);
+        }
+        this.file = file;
+        this.parallelism = parallelism;
+        this.maxBuffered = maxBuffered;
+    }
+
+    /**
+     * Put every non-empty line of the decompressed file into the queue,
+     * in file order. Blocks until done (backpressure from the queue).
+     *
+     * @return number of lines fed
+     */
+    public long feed(BlockingQueue<String> out) throws IOException, InterruptedException {
+        ExecutorService inflaters = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CandidateScanner scanner = new CandidateScanner(channel);
+            ArrayDeque<Object[]> inFlight = new ArrayDeque<>(); // {Long offset, Future<Member>}
+            int window = parallelism * 2; // Enough queued work to keep every worker busy
+            LineStitcher lines = new LineStitcher(out, skippedLines);
+            long expected = 0;
+            trailingBytes = 0;
+
+            while (true) {
+                long candidate;
+                while (inFlight.size() < window && (candidate = scanner.next()) >= 0) {
+                    long offset = candidate;
+                    inFlight.add(new Object[] {offset, inflaters.submit(() -> buffer(offset))});
+                }
+                if (inFlight.isEmpty()) {
+                    break; // No more headers
+                }
+
+                Object[] next = inFlight.poll();
+                long offset = (Long) next[0];
+                @SuppressWarnings("unchecked")
+                Future<Member> result = (Future<Member>) next[1];
+                if (offset < expected) {
+                    result.cancel(true); // Magic bytes inside the previous member
+                    continue;
+                }
+                if (offset > expected) {
+                    break; // Nothing starts where the last member ended: trailing bytes
+                }
+
+                Member member = await(result, offset);
+                if (member == Member.UNBUFFERED) {
+                    expected = stream(channel, offset, lines);
+                } else {
+                    lines.member(member);
+                    expected = member.end;
+                }
+            }
+            if (expected == 0 && channel.size() > 0) {
+                throw new IOException("Not a gzip file: " + file);
+            }
+            trailingBytes = channel.size() - expected;
+            return lines.finish(); // Last line without a trailing '\n'
+        } finally {
+            inflaters.shutdownNow();
+        }
+    }
+
+    /**
+     * Bytes after the last member that the last feed() ignored.
+     */
+    public long getTrailingBytes() {
+        return trailingBytes;
+    }
+
+    /**
+     * Lines skipped so far because they were longer than MAX_LINE bytes.
+     */
+    public long getSkippedLines() {
+        return skippedLines.sum();
+    }
+
+    private static Member await(Future<Member> result, long offset) throws IOException, InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Corrupt gzip member at offset " + offset, e.getCause());
+        }
+    }
+
+    /**
+     * Feeding side: inflate a member too big for a worker's buffer again,
+     * feeding its lines as they come out.
+     */
+    private static long stream(FileChannel channel, long offset, LineStitcher lines)
+            throws IOException, InterruptedException {
+        try {
+            return inflate(channel, offset, lines::chunk);
+        } catch (IOException | DataFormatException e) {
+            throw new IOException("Corrupt gzip member at offset " + offset, e);
+        }
+    }
+
+    /**
+     * Worker side: inflate the candidate at offset into memory and split it
+     * into lines, or return UNBUFFERED once it outgrows maxBuffered.
+     *
+     * 📝 NOTE: Each task opens its own channel. Cancelling a discarded
+     *   candidate interrupts its worker, and an interrupted read closes the
+     *   channel it was reading - that must not be the feeding thread's.
+     */
+    private Member buffer(long offset) throws IOException, DataFormatException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[][] data = {new byte[CHUNK]};
+            int[] length = {0};
+            long end = inflate(channel, offset, (chunk, n) -> {
+                if (length[0] + n > maxBuffered) {
+                    return false;
+                }
+                if (length[0] + n > data[0].length) {
+                    data[0] = Arrays.copyOf(data[0], (int) Math.min(maxBuffered, 2L * (length[0] + n)));
+                }
+                System.arraycopy(chunk, 0, data[0], length[0], n);
+                length[0] += n;
+                return true;
+            });
+            return end < 0 ? Member.UNBUFFERED : split(end, data[0], length[0]);
+        }
+    }
+
+    /**
+     * Inflate the member whose header starts at offset, hand its data to the
+     * sink chunk by chunk and verify its trailer. Throws if the candidate is
+     * not a real member.
+     *
+     * @return offset just after the member, or -1 if the sink stopped early
+     */
+    private static long inflate(FileChannel channel, long offset, InflatedSink sink)
+            throws IOException, DataFormatException, InterruptedException {
+        ByteBuffer input = ByteBuffer.allocate(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+        long inputEnd = offset + readFully(channel, input, offset);
+        input.flip();
+        int header = headerLength(input);
+        input.position(header);
+
+        Inflater inflater = new Inflater(true); // Raw deflate: we parse header/trailer ourselves
+        try {
+            inflater.setInput(input);
+            byte[] data = new byte[CHUNK];
+            CRC32 crc = new CRC32();
+            long inflated = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(data);
+                if (n > 0) {
+                    crc.update(data, 0, n);
+                    inflated += n;
+                    if (!sink.accept(data, n)) {
+                        return -1;
+                    }
+                } else if (inflater.needsDictionary()) {
+                    throw new IOException("Preset dictionary in gzip member");
+                } else if (inflater.needsInput()) {
+                    input.clear();
+                    int read = readFully(channel, input, inputEnd);
+                    if (read == 0) {
+                        throw new IOException("Truncated gzip member");
+                    }
+                    inputEnd += read;
+                    input.flip();
+                    inflater.setInput(input);
+                }
+            }
+
+            // Trailer: CRC32 and ISIZE (length mod 2^32), little-endian
+            long trailer = offset + header + inflater.getBytesRead();
+            ByteBuffer check = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            if (readFully(channel, check, trailer) < 8) {
+                throw new IOException("Missing gzip trailer");
+            }
+            if ((int) crc.getValue() != check.getInt(0) || (int) inflated != check.getInt(4)) {
+                throw new IOException("CRC or length mismatch");
+            }
+            return trailer + 8;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Read from position until the buffer is full or the file ends.
+     *
+     * @return bytes read
+     */
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    /**
+     * Length of the gzip header (RFC 1952) at the buffer's start. A header
+     * cut off by the end of the buffer (end of file, or an absurdly long
+     * FNAME/FCOMMENT) is reported as truncated.
+     */
+    private static int headerLength(ByteBuffer in) throws IOException {
+        if (in.limit() < 10) {
+            throw new IOException("Truncated gzip header");
+        }
+        if ((in.get(0) & 0xFF) != 0x1F || (in.get(1) & 0xFF) != 0x8B || in.get(2) != 8) {
+            throw new IOException("Not a gzip header");
+        }
+        int flags = in.get(3) & 0xFF;
+        if ((flags & FTEXT_RESERVED) != 0) {
+            throw new IOException("Reserved header flags set");
+        }
+        int pos = 10; // ID1 ID2 CM FLG MTIME(4) XFL OS
+        if ((flags & FEXTRA) != 0) {
+            if (pos + 2 > in.limit()) {
+                throw new IOException("Truncated gzip header");
+            }
+            pos += 2 + (in.getShort(pos) & 0xFFFF);
+        }
+        if ((flags & FNAME) != 0) {
+            pos = skipZeroTerminated(in, pos);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            pos = skipZeroTerminated(in, pos);
+        }
+        if ((flags & FHCRC) != 0) {
+            pos += 2;
+        }
+        if (pos > in.limit()) {
+            throw new IOException("Truncated gzip header");
+        }
+        return pos;
+    }
+
+    /**
+     * @return position just after the zero byte ending the string at pos
+     */
+    private static int skipZeroTerminated(ByteBuffer in, int pos) throws IOException {
+        while (pos < in.limit()) {
+            if (in.get(pos++) == 0) {
+                return pos;
+            }
+        }
+        throw new IOException("Truncated gzip header");
+    }
+
+    /**
+     * Split inflated bytes into head fragment, full lines and tail fragment.
+     * Head and tail may be over MAX_LINE too: the stitcher decides those.
+     */
+    private static Member split(long end, byte[] data, int length) {
+        int first = indexOf(data, 0, length);
+        if (first < 0) {
+            return new Member(end, Arrays.copyOf(data, length), List.of(), new byte[0], false, 0);
+        }
+        List<String> lines = new ArrayList<>();
+        int skipped = 0;
+        int lineStart = first + 1;
+        for (int i = lineStart; i < length; i++) {
+            if (data[i] == '\n') {
+                if (i - lineStart > MAX_LINE) {
+                    skipped++;
+                } else {
+                    String line = decode(data, lineStart, i);
+                    if (line != null) {
+                        lines.add(line);
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        return new Member(end, Arrays.copyOf(data, first), lines,
+            Arrays.copyOfRange(data, lineStart, length), true, skipped);
+    }
+
+    /**
+     * Decode bytes [from, to) as a line; null for blank lines.
+     */
+    private static String decode(byte[] bytes, int from, int to) {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--; // Windows line endings
+        }
+        return to > from ? new String(bytes, from, to - from, StandardCharsets.UTF_8) : null;
+    }
+
+    private static int indexOf(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * a followed by b[from, to), as a new array.
+     */
+    private static byte[] concat(byte[] a, byte[] b, int from, int to) {
+        byte[] joined = Arrays.copyOf(a, a.length + to - from);
+        System.arraycopy(b, from, joined, a.length, to - from);
+        return joined;
+    }
+
+    /**
+     * Joins lines cut across members and feeds them in file order.
+     * Owned by the feeding thread.
+     */
+    private static final class LineStitcher {
+        private static final byte[] EMPTY = new byte[0];
+
+        private final BlockingQueue<String> out;
+        private final LongAdder skippedLines;
+        private byte[] carry = EMPTY;     // start of a line still waiting for its '\n'
+        private boolean skipping = false; // the line in progress is over MAX_LINE
+        private long lines = 0;
+
+        LineStitcher(BlockingQueue<String> out, LongAdder skippedLines) {
+            this.out = out;
+            this.skippedLines = skippedLines;
+        }
+
+        /**
+         * A member a worker already split into lines.
+         */
+        void member(Member member) throws InterruptedException {
+            if (!member.hasNewline) {
+                append(member.head, 0, member.head.length);
+                return;
+            }
+            endLine(member.head, 0, member.head.length);
+            for (String line : member.lines) {
+                out.put(line);
+            }
+            lines += member.lines.size();
+            skippedLines.add(member.skipped);
+            append(member.tail, 0, member.tail.length);
+        }
+
+        /**
+         * Inflated bytes of a member too big to buffer, in order.
+         * The array is reused for the next chunk, so nothing keeps it.
+         */
+        boolean chunk(byte[] data, int length) throws InterruptedException {
+            int lineStart = 0;
+            for (int i = 0; i < length; i++) {
+                if (data[i] == '\n') {
+                    endLine(data, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            append(data, lineStart, length);
+            return true;
+        }
+
+        /**
+         * Emit the last line (no trailing '\n').
+         *
+         * @return number of lines fed
+         */
+        long finish() throws InterruptedException {
+            endLine(EMPTY, 0, 0);
+            return lines;
+        }
+
+        /**
+         * bytes[from, to) continue the line in progress, which has no '\n' yet.
+         */
+        private void append(byte[] bytes, int from, int to) {
+            if (skipping) {
+                return;
+            }
+            if (carry.length + to - from > MAX_LINE) {
+                skipping = true; // Dropped up to its '\n'
+                carry = EMPTY;
+                return;
+            }
+            carry = concat(carry, bytes, from, to);
+        }
+
+        /**
+         * bytes[from, to) end the line in progress: feed it, or count it as skipped.
+         */
+        private void endLine(byte[] bytes, int from, int to) throws InterruptedException {
+            if (carry.length > 0 || skipping) {
+                append(bytes, from, to);
+            } else if (to - from > MAX_LINE) {
+                skipping = true;
+            }
+            if (skipping) {
+                skipping = false;
+                skippedLines.increment();
+            } else if (carry.length > 0) {
+                emit(carry, 0, carry.length);
+                carry = EMPTY;
+            } else {
+                emit(bytes, from, to);
+            }
+        }
+
+        private void emit(byte[] bytes, int from, int to) throws InterruptedException {
+            String decoded = decode(bytes, from, to);
+            if (decoded != null) {
+                out.put(decoded);
+                lines++;
+            }
+        }
+    }
+
+    /**
+     * Finds offsets of 1f 8b 08 in the compressed file, in order.
+     * Reads in SCAN_BUFFER chunks; owned by the feeding thread.
+     */
+    private static final class CandidateScanner {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        private long bufferStart = 0;   // file offset of buffer[0]
+        private int bufferLimit = 0;
+        private int scanIndex = 0;
+        private boolean eof = false;
+
+        CandidateScanner(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * @return next candidate offset, or -1 at end of file
+         */
+        long next() throws IOException {
+            while (true) {
+                byte[] bytes = buffer.array();
+                for (; scanIndex + 2 < bufferLimit; scanIndex++) {
+                    if ((bytes[scanIndex] & 0xFF) == 0x1F && (bytes[scanIndex + 1] & 0xFF) == 0x8B
+                        && bytes[scanIndex + 2] == 8) {
+                        return bufferStart + scanIndex++;
+                    }
+                }
+                if (eof) {
+                    return -1;
+                }
+                // Refill, keeping the last 2 bytes so a magic split across reads is found
+                long nextStart = bufferStart + scanIndex;
+                buffer.clear();
+                int read = 0;
+                while (buffer.hasRemaining()) {
+                    int n = channel.read(buffer, nextStart + read);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    read += n;
+                }
+                bufferStart = nextStart;
+                bufferLimit = read;
+                scanIndex = 0;
+            }
+        }
+    }
+}
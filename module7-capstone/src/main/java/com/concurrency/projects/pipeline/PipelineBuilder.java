@@ -0,0 +1,145 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Fluent builder that fuses adjacent stateless stages into one worker loop.
+ *
+ * Usage:
+ *   DataPipeline.source(rawLogs)
+ *       .workers(2)
+ *       .map(LogEntry::parse)
+ *       .filter(entry -> entry.level == LogLevel.ERROR)
+ *       .sink(alerts);
+ *
+ * 📝 NOTE: Chaining one DataPipeline per stage costs a queue handoff
+ *   (lock + context switch + node allocation) for every record at every hop.
+ *   map/filter are stateless, so stages with the same parallelism can run
+ *   back-to-back inside the same worker - no queue needed between them.
+ *   A queue is only inserted where workers(n) changes the parallelism.
+ *
+ * 💡 THINK: Why is a queue still needed when parallelism changes?
+ *   2 parser threads feeding 1 writer thread need somewhere to hand off.
+ *   That is the only place a hop buys anything.
+ *
+ * ⚠️ AVOID: Fusing stateful stages (windows, dedup). They need a
+ *   single owner and belong in their own DataPipeline.
+ *
+ * @param <S> type read from the source queue
+ * @param <T> type produced by the stages added so far
+ */
+public class PipelineBuilder<S, T> {
+
+    /** Stages sharing one worker pool, already composed into one function. */
+    private static final class Segment {
+        final Function<Object, Object> fused;
+        final int numWorkers;
+
+        Segment(Function<Object, Object> fused, int numWorkers) {
+            this.fused = fused;
+            this.numWorkers = numWorkers;
+        }
+    }
+
+    private final BlockingQueue<S> source;
+    private final List<Segment> segments = new ArrayList<>();
+    private Function<Object, Object> current; // null = no stages yet in this segment
+    private int currentWorkers = 1;
+    private int queueCapacity = 1000;
+    private IntFunction<BlockingQueue<Object>> transport = LinkedBlockingQueue::new;
+
+    PipelineBuilder(BlockingQueue<S> source) {
+        this.source = source;
+    }
+
+    /**
+     * Set the parallelism for the stages that follow.
+     *
+     * 📝 NOTE: If stages were already added with a different worker count,
+     *   this closes the current segment and the next stage starts a new one.
+     */
+    public PipelineBuilder<S, T> workers(int numWorkers) {
+        if (numWorkers <= 0) {
+            throw new IllegalArgumentException("numWorkers must be positive: " + numWorkers);
+        }
+        if (numWorkers != currentWorkers && current != null) {
+            segments.add(new Segment(current, currentWorkers));
+            current = null;
+        }
+        currentWorkers = numWorkers;
+        return this;
+    }
+
+    /**
+     * Capacity of the bounded queues inserted between segments (backpressure!).
+     */
+    public PipelineBuilder<S, T> queueCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.queueCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * Queue implementation inserted between segments, given queueCapacity.
+     * Defaults to LinkedBlockingQueue; e.g. to switch to a ring buffer:
+     *   .transport(capacity -> new RingBufferQueue<>(capacity, WaitStrategy.YIELD))
+     */
+    public PipelineBuilder<S, T> transport(IntFunction<BlockingQueue<Object>> transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Transform each record. Returning null drops the record,
+     * same as a DataPipeline processor.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> PipelineBuilder<S, R> map(Function<? super T, ? extends R> fn) {
+        current = StageFusion.then(current, StageFusion.map(fn));
+        return (PipelineBuilder<S, R>) this;
+    }
+
+    /**
+     * Keep only records matching the predicate.
+     */
+    public PipelineBuilder<S, T> filter(Predicate<? super T> predicate) {
+        current = StageFusion.then(current, StageFusion.filter(predicate));
+        return this;
+    }
+
+    /**
+     * Finish the pipeline. Creates one DataPipeline per segment, connected by
+     * bounded queues. Nothing runs until start() is called on the result.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StagedPipeline sink(BlockingQueue<T> sink) {
+        List<Segment> all = new ArrayList<>(segments);
+        if (current != null) {
+            all.add(new Segment(current, currentWorkers));
+        }
+        if (all.isEmpty()) {
+            // No stages: still honour the contract of moving source -> sink
+            all.add(new Segment(Function.identity(), currentWorkers));
+        }
+
+        List<DataPipeline<?, ?>> stages = new ArrayList<>();
+        BlockingQueue in = source;
+        for (int i = 0; i < all.size(); i++) {
+            Segment segment = all.get(i);
+            BlockingQueue out = (i == all.size() - 1)
+                ? sink
+                : transport.apply(queueCapacity);
+            stages.add(new DataPipeline<Object, Object>(in, out, segment.fused, segment.numWorkers));
+            in = out;
+        }
+        return new StagedPipeline(stages);
+    }
+}
@@ -0,0 +1,210 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded reorder buffer that releases results in sequence order.
+ *
+ * 📝 NOTE: Used by DataPipeline in ordered mode.
+ *   - Each input gets a sequence number when it is taken from the queue
+ *   - Workers finish in any order and park their result in slot (seq % capacity)
+ *   - Whoever completes the head-of-line sequence emits it, plus every
+ *     consecutive result already waiting behind it
+ *
+ * 💡 THINK: Why bounded?
+ *   One slow record would otherwise let the others pile up without limit.
+ *   With capacity N, at most N records are between "taken" and "emitted";
+ *   claiming a new sequence waits until the head-of-line record is emitted.
+ *
+ * ⚠️ AVOID: Calling the sink while holding the lock.
+ *   The sink is usually a blocking put into a bounded queue - holding the
+ *   lock there would stall every worker trying to park a result.
+ *   Instead one thread at a time is the "emitter" and emits outside the lock.
+ *
+ * @param <T> result type parked in the buffer
+ */
+public class ReorderBuffer<T> {
+
+    /**
+     * Destination for results released in order.
+     */
+    @FunctionalInterface
+    interface Sink<T> {
+        void accept(T item) throws InterruptedException;
+    }
+
+    private final Object[] slots;
+    private final boolean[] completed;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private long nextSequence = 0; // next sequence to hand out
+    private long nextToEmit = 0;   // head of line
+    private boolean emitting = false;
+    private int parked = 0;        // completed but not yet emitted
+    private int maxParked = 0;
+    private long released = 0;
+
+    public ReorderBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new Object[capacity];
+        this.completed = new boolean[capacity];
+    }
+
+    /**
+     * Wait until a new sequence number can be claimed without overrunning
+     * the buffer. Interruptible, so a stopping stage never hangs here.
+     */
+    void awaitSlot() throws InterruptedException {
+        lock.lock();
+        try {
+            while (nextSequence - nextToEmit >= capacity) {
+                slotFreed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Claim the next sequence number.
+     *
+     * 🔑 HINT: The caller must take the input from its queue and claim in one
+     *   atomic step (DataPipeline holds a take lock), otherwise sequence
+     *   order would not match queue order.
+     */
+    long claim() {
+        lock.lock();
+        try {
+            return nextSequence++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Park the result for a sequence and emit everything that is now in order.
+     *
+     * @param sequence the sequence returned by claim()
+     * @param result the result, or null if the record produced no output
+     *               (the sequence must still be completed to unblock the line)
+     * @param sink where in-order results go
+     */
+    void complete(long sequence, T result, Sink<T> sink) throws InterruptedException {
+        lock.lock();
+        try {
+            int index = (int) (sequence % capacity);
+            slots[index] = result;
+            completed[index] = true;
+            parked++;
+            if (parked > maxParked) {
+                maxParked = parked;
+            }
+            if (emitting || sequence != nextToEmit) {
+                return; // The current emitter (or a later completion) will release it
+            }
+            emitting = true;
+        } finally {
+            lock.unlock();
+        }
+        drain(sink);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain(Sink<T> sink) throws InterruptedException {
+        boolean done = false;
+        try {
+            while (true) {
+                T item;
+                lock.lock();
+                try {
+                    int index = (int) (nextToEmit % capacity);
+                    if (!completed[index]) {
+                        emitting = false;
+                        done = true;
+                        return;
+                    }
+                    item = (T) slots[index];
+                    slots[index] = null;
+                    completed[index] = false;
+                    parked--;
+                    nextToEmit++;
+                    released++;
+                    slotFreed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (item != null) {
+                    sink.accept(item); // Outside the lock!
+                }
+            }
+        } finally {
+            if (!done) {
+                // Sink failed (e.g. interrupted on shutdown): let someone else emit
+                lock.lock();
+                try {
+                    emitting = false;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Results currently parked behind a slower head-of-line record.
+     */
+    public int getParkedCount() {
+        lock.lock();
+        try {
+            return parked;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * High-water mark of getParkedCount() since creation.
+     *
+     * 💡 THINK: If this sits at capacity, workers are stalling on one slow
+     *   record - either raise the capacity or find the slow record.
+     */
+    public int getMaxParkedCount() {
+        lock.lock();
+        try {
+            return maxParked;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records taken from the input but not yet emitted (processing + parked).
+     */
+    public long getInFlightCount() {
+        lock.lock();
+        try {
+            return nextSequence - nextToEmit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReleasedCount() {
+        lock.lock();
+        try {
+            return released;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
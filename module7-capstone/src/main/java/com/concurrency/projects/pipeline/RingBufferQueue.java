@@ -0,0 +1,299 @@
+package com.concurrency.projects.pipeline;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free bounded ring buffer usable wherever DataPipeline takes a queue.
+ *
+ * Drop-in transport:
+ *   new DataPipeline<>(new RingBufferQueue<>(1024, WaitStrategy.YIELD), out, fn, 4)
+ *   DataPipeline.source(in).transport(c -> new RingBufferQueue<>(c, WaitStrategy.PARK))...
+ *
+ * 📝 NOTE: LinkedBlockingQueue allocates a node per element and takes a
+ *   lock on every put/take. Here:
+ *   - slots are preallocated once; put() only writes a reference
+ *   - producers claim a position with one CAS on the tail sequence,
+ *     consumers with one CAS on the head sequence - no lock
+ *   - each slot carries its own sequence number, the barrier between the
+ *     two sides (Disruptor / Vyukov style):
+ *       slot.sequence == pos      → free, producer for pos may write
+ *       slot.sequence == pos + 1  → published, consumer for pos may read
+ *     and the consumer hands the slot back with pos + capacity.
+ *
+ * 📝 NOTE: head and tail are each padded to sit alone on a cache line.
+ *   Without that, every producer CAS would invalidate the line the
+ *   consumers are spinning on (false sharing), and vice versa.
+ *
+ * 💡 THINK: Blocking put()/take() never sleep on a condition - there is no
+ *   lock to wait with. The WaitStrategy decides between spinning, yielding
+ *   and parking while the ring is full or empty.
+ *
+ * ⚠️ AVOID: Iterating it for anything but debugging: iterator() is a
+ *   best-effort snapshot of slots published at that moment.
+ *
+ * @param <E> element type
+ */
+public class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    /**
+     * A long sequence alone on its cache line (56 bytes of padding per side).
+     */
+    @SuppressWarnings("unused")
+    private static class LeftPad {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    @SuppressWarnings("unused")
+    private static class SequenceValue extends LeftPad {
+        volatile long value;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class PaddedSequence extends SequenceValue {
+        long p9, p10, p11, p12, p13, p14, p15;
+
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        boolean compareAndSet(long expected, long next) {
+            return VALUE.compareAndSet(this, expected, next);
+        }
+    }
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final PaddedSequence head = new PaddedSequence(); // next position to read
+    private final PaddedSequence tail = new PaddedSequence(); // next position to write
+
+    /**
+     * @param capacity slots to preallocate (rounded up to a power of two, at least 2)
+     * @param waitStrategy how blocking calls wait for room or for data
+     */
+    public RingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be in [1, 2^30]: " + capacity);
+        }
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1); // One slot can't tell full from empty
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    // ---- Producer side ----
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.value;
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[index] = e;
+                    sequences.set(index, pos + 1); // Publish: volatile write orders the slot write
+                    return true;
+                }
+                pos = tail.value; // Lost the race to another producer
+            } else if (diff < 0) {
+                return false; // Consumer hasn't released this slot yet: full
+            } else {
+                pos = tail.value; // Another producer moved on; catch up
+            }
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        int attempt = 0;
+        while (!offer(e)) {
+            checkInterrupted();
+            attempt = idle(attempt);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        while (!offer(e)) {
+            checkInterrupted();
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            attempt = idle(attempt);
+        }
+        return true;
+    }
+
+    // ---- Consumer side ----
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = head.value;
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = (E) slots[index];
+                    slots[index] = null; // Don't keep the element reachable
+                    sequences.set(index, pos + mask + 1); // Hand the slot to the next lap's producer
+                    return e;
+                }
+                pos = head.value;
+            } else if (diff < 0) {
+                return null; // Not published yet: empty
+            } else {
+                pos = head.value;
+            }
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        int attempt = 0;
+        E e;
+        while ((e = poll()) == null) {
+            checkInterrupted();
+            attempt = idle(attempt);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        E e;
+        while ((e = poll()) == null) {
+            checkInterrupted();
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            attempt = idle(attempt);
+        }
+        return e;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        while (true) {
+            long pos = head.value;
+            int index = (int) pos & mask;
+            if (sequences.get(index) != pos + 1) {
+                if (head.value == pos) {
+                    return null;
+                }
+                continue;
+            }
+            E e = (E) slots[index];
+            if (head.value == pos && e != null) {
+                return e; // Still unclaimed, so e is the head element
+            }
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException("Cannot drain to self");
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    // ---- Introspection ----
+
+    @Override
+    public int size() {
+        while (true) {
+            long before = head.value;
+            long written = tail.value;
+            if (head.value == before) {
+                return (int) Math.max(0, Math.min(written - before, slots.length));
+            }
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return slots.length - size();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long end = tail.value;
+        for (long pos = head.value; pos < end; pos++) {
+            int index = (int) pos & mask;
+            Object e = slots[index];
+            if (sequences.get(index) == pos + 1 && e != null) {
+                snapshot.add((E) e);
+            }
+        }
+        return snapshot.iterator();
+    }
+
+    /**
+     * Wait as the strategy says, then return the next attempt number.
+     *
+     * ⚠️ AVOID: A plain attempt++. A consumer idle for long enough wraps it
+     *   to a negative count, and the strategy starts busy-spinning again.
+     */
+    private int idle(int attempt) {
+        waitStrategy.idle(attempt);
+        return attempt < Integer.MAX_VALUE ? attempt + 1 : attempt;
+    }
+
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+}
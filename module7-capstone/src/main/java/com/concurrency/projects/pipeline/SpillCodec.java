@@ -0,0 +1,63 @@
+package com.concurrency.projects.pipeline;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns queue elements into bytes and back for SpillingBlockingQueue.
+ */
+public interface SpillCodec<E> {
+
+    byte[] encode(E element) throws IOException;
+
+    E decode(byte[] bytes) throws IOException;
+
+    /**
+     * UTF-8 strings - the cheap choice for raw log lines.
+     */
+    static SpillCodec<String> utf8() {
+        return new SpillCodec<>() {
+            @Override
+            public byte[] encode(String element) {
+                return element.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Plain Java serialization. Works for any Serializable element,
+     * but is slow and verbose - prefer a dedicated codec on hot paths.
+     */
+    static <E extends Serializable> SpillCodec<E> javaSerialization() {
+        return new SpillCodec<>() {
+            @Override
+            public byte[] encode(E element) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(element);
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E decode(byte[] bytes) throws IOException {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (E) in.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Cannot decode spilled element", e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Composes map/filter stages into one function, shared by PipelineBuilder
+ * (queue-based segments) and BulkPipeline (ForkJoin chunks).
+ *
+ * 📝 NOTE: Stages are erased to Function<Object, Object> so a chain of any
+ *   length is a single call per record. null means "dropped": a filter
+ *   returns null for records it rejects, and every later stage is skipped.
+ */
+final class StageFusion {
+
+    private StageFusion() {
+    }
+
+    /**
+     * Stage that transforms each record; returning null drops it.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Function<Object, Object> map(Function<? super T, ?> fn) {
+        return v -> fn.apply((T) v);
+    }
+
+    /**
+     * Stage that keeps only records matching the predicate.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Function<Object, Object> filter(Predicate<? super T> predicate) {
+        return v -> predicate.test((T) v) ? v : null;
+    }
+
+    /**
+     * Run stage after upstream, skipping it for dropped records.
+     *
+     * @param upstream the chain so far, or null if there is none yet
+     */
+    static Function<Object, Object> then(Function<Object, Object> upstream, Function<Object, Object> stage) {
+        if (upstream == null) {
+            return stage;
+        }
+        return v -> {
+            Object mid = upstream.apply(v);
+            return mid == null ? null : stage.apply(mid);
+        };
+    }
+}
@@ -0,0 +1,250 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Per-stage throughput and latency metrics for a DataPipeline.
+ *
+ * 📝 NOTE: Hot-path updates are LongAdder increments and histogram bucket
+ *   increments - no locks, no allocation. Everything expensive (percentiles,
+ *   queue sizes, ratios) is computed when someone reads the metric.
+ *
+ * Reading a chained pipeline:
+ *   - Full input queue + high busy ratio  → this stage is the bottleneck
+ *   - Full input queue + low busy ratio   → workers blocked on output: look downstream
+ *   - Empty input queue + high idle wait  → starved: look upstream
+ *
+ * 💡 THINK: Why "idle wait" instead of per-record queue wait?
+ *   Measuring how long each record sat in the queue needs an enqueue
+ *   timestamp on every record, i.e. a wrapper object per record. Instead
+ *   we time how long workers wait for input (starvation), and estimate
+ *   queue wait with Little's law: depth / drain rate.
+ */
+public class StageMetrics implements StageMetricsMXBean {
+
+    private static final long SAMPLE_INTERVAL_NANOS = 100_000_000L; // Same cadence as the scaler
+
+    /**
+     * Busy time of one worker. Written only by its own worker thread.
+     */
+    static final class WorkerStats {
+        final long startNanos = System.nanoTime();
+        volatile long busyNanos;
+
+        void addBusy(long nanos) {
+            busyNanos += nanos; // Single writer: volatile is enough
+        }
+
+        double busyRatio(long now) {
+            long elapsed = now - startNanos;
+            return elapsed <= 0 ? 0.0 : Math.min(1.0, busyNanos / (double) elapsed);
+        }
+    }
+
+    /**
+     * Records taken from the input queue by a point in time.
+     */
+    private static final class Sample {
+        final long nanos;
+        final long recordsIn;
+
+        Sample(long nanos, long recordsIn) {
+            this.nanos = nanos;
+            this.recordsIn = recordsIn;
+        }
+    }
+
+    final LongAdder recordsIn = new LongAdder();
+    final LongAdder recordsOut = new LongAdder();
+    final LongAdder recordsDropped = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LatencyHistogram processingTime = new LatencyHistogram();
+    final LatencyHistogram idleWait = new LatencyHistogram();
+
+    private final BlockingQueue<?> inputQueue;
+    private final BlockingQueue<?> outputQueue;
+    private final IntSupplier workerCount;
+    private final Map<Integer, WorkerStats> workerStats = new ConcurrentHashMap<>();
+
+    // Drain-rate window: moved only by sample() (under this), read lock-free
+    private volatile Sample previous = new Sample(System.nanoTime(), 0);
+    private volatile Sample current = previous;
+
+    StageMetrics(BlockingQueue<?> inputQueue, BlockingQueue<?> outputQueue, IntSupplier workerCount) {
+        this.inputQueue = inputQueue;
+        this.outputQueue = outputQueue;
+        this.workerCount = workerCount;
+    }
+
+    WorkerStats registerWorker(int workerId) {
+        WorkerStats stats = new WorkerStats();
+        workerStats.put(workerId, stats);
+        return stats;
+    }
+
+    void unregisterWorker(int workerId) {
+        workerStats.remove(workerId);
+    }
+
+    /**
+     * Called by workers as they take input, with a time they already have:
+     * starts a new drain-rate window at most every SAMPLE_INTERVAL_NANOS.
+     * Otherwise it costs one volatile read.
+     */
+    void sample(long now) {
+        if (now - current.nanos < SAMPLE_INTERVAL_NANOS) {
+            return;
+        }
+        synchronized (this) {
+            if (now - current.nanos >= SAMPLE_INTERVAL_NANOS) {
+                previous = current;
+                current = new Sample(now, recordsIn.sum());
+            }
+        }
+    }
+
+    @Override
+    public long getRecordsIn() {
+        return recordsIn.sum();
+    }
+
+    @Override
+    public long getRecordsOut() {
+        return recordsOut.sum();
+    }
+
+    /**
+     * Records that produced no output: filtered out by the processor,
+     * or lost to a processor error.
+     */
+    @Override
+    public long getRecordsDropped() {
+        return recordsDropped.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public int getInputQueueSize() {
+        return inputQueue.size();
+    }
+
+    @Override
+    public int getOutputQueueSize() {
+        return outputQueue.size();
+    }
+
+    /**
+     * Little's law: time for the current backlog to drain at the rate
+     * observed over the last one to two sample intervals. Long.MAX_VALUE
+     * if nothing drains.
+     *
+     * 📝 NOTE: Reading changes nothing - workers move the window. If they
+     *   stop taking input, the window stretches up to now and the rate
+     *   falls towards zero, so a stalled stage shows a growing wait.
+     */
+    @Override
+    public long getEstimatedQueueWaitNanos() {
+        int depth = inputQueue.size();
+        if (depth == 0) {
+            return 0;
+        }
+        Sample since = previous;
+        long elapsed = System.nanoTime() - since.nanos;
+        long drained = recordsIn.sum() - since.recordsIn;
+        if (elapsed <= 0 || drained <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (depth * (double) elapsed / drained);
+    }
+
+    /**
+     * Time per processor call (one record, or one batch in batch mode).
+     */
+    public LatencyHistogram getProcessingTime() {
+        return processingTime;
+    }
+
+    /**
+     * Time workers waited for their next input.
+     */
+    public LatencyHistogram getIdleWait() {
+        return idleWait;
+    }
+
+    @Override
+    public long getProcessingTimeMeanNanos() {
+        return processingTime.getMeanNanos();
+    }
+
+    @Override
+    public long getProcessingTimeP50Nanos() {
+        return processingTime.getPercentileNanos(50);
+    }
+
+    @Override
+    public long getProcessingTimeP99Nanos() {
+        return processingTime.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getProcessingTimeMaxNanos() {
+        return processingTime.getMaxNanos();
+    }
+
+    @Override
+    public long getIdleWaitP50Nanos() {
+        return idleWait.getPercentileNanos(50);
+    }
+
+    @Override
+    public long getIdleWaitP99Nanos() {
+        return idleWait.getPercentileNanos(99);
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return workerCount.getAsInt();
+    }
+
+    @Override
+    public double getAverageBusyRatio() {
+        long now = System.nanoTime();
+        double total = 0;
+        int n = 0;
+        for (WorkerStats stats : workerStats.values()) {
+            total += stats.busyRatio(now);
+            n++;
+        }
+        return n == 0 ? 0.0 : total / n;
+    }
+
+    /**
+     * Fraction of its lifetime each live worker spent processing.
+     */
+    @Override
+    public Map<String, Double> getWorkerBusyRatios() {
+        long now = System.nanoTime();
+        Map<String, Double> ratios = new TreeMap<>();
+        workerStats.forEach((id, stats) -> ratios.put("worker-" + id, stats.busyRatio(now)));
+        return ratios;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "in=%d out=%d dropped=%d errors=%d inQ=%d outQ=%d p50=%dus p99=%dus busy=%.0f%%",
+            getRecordsIn(), getRecordsOut(), getRecordsDropped(), getErrors(),
+            getInputQueueSize(), getOutputQueueSize(),
+            getProcessingTimeP50Nanos() / 1000, getProcessingTimeP99Nanos() / 1000,
+            getAverageBusyRatio() * 100);
+    }
+}
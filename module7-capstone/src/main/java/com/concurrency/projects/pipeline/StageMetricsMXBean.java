@@ -0,0 +1,45 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.Map;
+
+/**
+ * JMX view of one DataPipeline stage.
+ *
+ * 📝 NOTE: The MXBean suffix makes the platform MBean server expose this
+ *   with open types only, so jconsole / VisualVM can read it without
+ *   having our classes on their classpath.
+ */
+public interface StageMetricsMXBean {
+
+    long getRecordsIn();
+
+    long getRecordsOut();
+
+    long getRecordsDropped();
+
+    long getErrors();
+
+    int getInputQueueSize();
+
+    int getOutputQueueSize();
+
+    long getEstimatedQueueWaitNanos();
+
+    long getProcessingTimeMeanNanos();
+
+    long getProcessingTimeP50Nanos();
+
+    long getProcessingTimeP99Nanos();
+
+    long getProcessingTimeMaxNanos();
+
+    long getIdleWaitP50Nanos();
+
+    long getIdleWaitP99Nanos();
+
+    int getWorkerCount();
+
+    double getAverageBusyRatio();
+
+    Map<String, Double> getWorkerBusyRatios();
+}
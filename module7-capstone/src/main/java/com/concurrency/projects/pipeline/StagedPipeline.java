@@ -0,0 +1,85 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A chain of DataPipeline stages produced by PipelineBuilder.
+ *
+ * 📝 NOTE: Each stage here is a fused segment - it may run several
+ *   map/filter steps per record without touching a queue in between.
+ */
+public class StagedPipeline {
+
+    private final List<DataPipeline<?, ?>> stages;
+
+    StagedPipeline(List<DataPipeline<?, ?>> stages) {
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * Start every stage. Downstream first, so consumers are ready
+     * before the first record arrives.
+     */
+    public void start() {
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            stages.get(i).start();
+        }
+    }
+
+    /**
+     * Stop every stage, upstream first, so no stage keeps feeding
+     * a stage that has already stopped.
+     */
+    public void stop() {
+        for (DataPipeline<?, ?> stage : stages) {
+            stage.stop();
+        }
+    }
+
+    /**
+     * Drain every stage, upstream first: a stage is only drained once
+     * everything upstream of it has been processed and handed on.
+     *
+     * @return false if the timeout elapsed (remaining stages are stopped)
+     */
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean drained = true;
+        for (DataPipeline<?, ?> stage : stages) {
+            if (drained) {
+                drained = stage.drain(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } else {
+                stage.stop();
+            }
+        }
+        return drained;
+    }
+
+    public boolean isRunning() {
+        for (DataPipeline<?, ?> stage : stages) {
+            if (stage.isRunning()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Register every stage's metrics over JMX as prefix-0, prefix-1, ...
+     * (upstream to downstream).
+     */
+    public void registerMBeans(String prefix) {
+        for (int i = 0; i < stages.size(); i++) {
+            stages.get(i).registerMBean(prefix + "-" + i);
+        }
+    }
+
+    /**
+     * The underlying stages, one per parallelism segment.
+     */
+    public List<DataPipeline<?, ?>> getStages() {
+        return stages;
+    }
+}
@@ -0,0 +1,371 @@
+package com.concurrency.projects.pipeline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipeline source that follows a growing log file, like tail -F.
+ *
+ * 📝 NOTE: Instead of re-reading the file, we keep our byte position and,
+ *   whenever the WatchService reports a change, read only what was appended.
+ *   Only complete lines are emitted; a partial last line waits for its '\n'.
+ *
+ * Log management moves files under us:
+ *   - rotation  (app.log → app.log.1, new app.log): detected by the file
+ *     key (inode) changing. We finish the old file, then start the new one at 0.
+ *     Some filesystems (Windows included) have no file key; there a new
+ *     creation time or a file shorter than what we read counts as rotated.
+ *   - truncation (copytruncate): the file shrinks below our position,
+ *     so we start over at 0.
+ *
+ * 📝 NOTE: A checkpoint (file key - or creation time where there is none -
+ *   plus the offset of the last emitted line) is written every
+ *   checkpointInterval and on stop. On restart we seek straight to that
+ *   offset when the file is still the same one - no re-scan.
+ *   The checkpoint is replaced atomically (write temp file, then rename),
+ *   so a crash mid-write never leaves a torn checkpoint.
+ *
+ * 💡 THINK: The checkpoint marks lines handed to the pipeline, not lines
+ *   fully processed. After a crash, records still in the queues are lost;
+ *   checkpoint after the sink (see GroupCommitFileSink) for at-least-once.
+ *
+ * Lines longer than MAX_LINE bytes are skipped and counted in
+ * getSkippedLines(), as in MappedLogFileSource: the line is never
+ * going to fit, so failing would only fail again on every restart.
+ *
+ * ⚠️ AVOID: Trusting WatchService alone. Events can be coalesced or dropped
+ *   (and some platforms poll), so we also re-check every POLL_INTERVAL.
+ */
+public class TailingLogFileSource {
+
+    private static final long POLL_INTERVAL_MS = 1000;
+    private static final int READ_BUFFER = 64 * 1024;
+    private static final int MAX_LINE = 1 << 20; // Same limit as MappedLogFileSource
+
+    private final Path file;
+    private final Path checkpointFile;
+    private final long checkpointIntervalNanos;
+
+    private volatile boolean running = false;
+
+    // Owned by the thread running follow()
+    private FileChannel channel;
+    private Object fileKey;       // null where the filesystem has none
+    private FileTime fileCreated; // identifies the file when fileKey is null
+    private volatile long position; // offset just after the last emitted line
+    private long readPosition;      // offset up to which bytes have been read
+    private byte[] partial = new byte[256];
+    private int partialLength = 0;  // bytes of an incomplete line carried over
+    private boolean skipping = false; // dropping an overlong line up to its '\n'
+    private long lastCheckpoint;
+    private volatile long linesFed = 0; // Single writer; volatile for getLinesFed()
+    private volatile long skippedLines = 0;
+
+    /**
+     * @param file the log file to follow (may not exist yet)
+     * @param checkpointFile where the resume offset is kept
+     * @param checkpointInterval how often the offset is persisted while running
+     */
+    public TailingLogFileSource(Path file, Path checkpointFile, long checkpointInterval, TimeUnit unit) {
+        this.file = file.toAbsolutePath();
+        this.checkpointFile = checkpointFile;
+        this.checkpointIntervalNanos = unit.toNanos(checkpointInterval);
+    }
+
+    /**
+     * Feed lines into the queue until stop() is called or the thread is
+     * interrupted. Resumes from the checkpoint if it matches the file.
+     */
+    public void follow(BlockingQueue<String> out) throws IOException, InterruptedException {
+        running = true;
+        Throwable failure = null;
+        Path directory = file.getParent();
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            directory.register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+            resume();
+
+            while (running) {
+                readAppended(out);
+                checkRotationOrTruncation(out);
+                if (System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos) {
+                    saveCheckpoint();
+                }
+
+                WatchKey key = watcher.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents(); // Which event doesn't matter: we re-check the file
+                    key.reset();
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            running = false;
+            finish(failure);
+        }
+    }
+
+    /**
+     * Final checkpoint and close. If follow() is already failing, an error
+     * here is attached to that failure instead of replacing it.
+     */
+    private void finish(Throwable failure) throws IOException {
+        IOException error = null;
+        try {
+            saveCheckpoint();
+        } catch (IOException e) {
+            error = e;
+        }
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            } else {
+                error.addSuppressed(e);
+            }
+        }
+        if (error != null) {
+            if (failure == null) {
+                throw error;
+            }
+            failure.addSuppressed(error);
+        }
+    }
+
+    /**
+     * Ask follow() to return after its current wait (at most POLL_INTERVAL).
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getLinesFed() {
+        return linesFed;
+    }
+
+    /**
+     * Lines skipped so far because they were longer than MAX_LINE bytes.
+     */
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * Offset of the first byte not yet emitted as part of a line.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    // ---- File tracking ----
+
+    private void resume() throws IOException {
+        if (!openCurrentFile()) {
+            return; // Not created yet; picked up on a later check
+        }
+        if (Files.exists(checkpointFile)) {
+            List<String> saved = Files.readAllLines(checkpointFile, StandardCharsets.UTF_8);
+            if (saved.size() == 2 && saved.get(0).equals(identity(fileKey, fileCreated))) {
+                long offset = Long.parseLong(saved.get(1));
+                if (offset <= channel.size()) {
+                    position = offset;
+                    readPosition = offset;
+                }
+            }
+            // Different file (rotated while we were down) or shrunk: start at 0
+        }
+    }
+
+    /**
+     * @return false if the file doesn't exist right now
+     */
+    private boolean openCurrentFile() throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            fileKey = attributes.fileKey();
+            fileCreated = attributes.creationTime();
+            position = 0;
+            readPosition = 0;
+            partialLength = 0;
+            skipping = false;
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private void checkRotationOrTruncation(BlockingQueue<String> out) throws IOException, InterruptedException {
+        if (channel == null) {
+            openCurrentFile();
+            return;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return; // Mid-rotation: old name gone, new file not there yet
+        }
+
+        if (isRotated(fileKey, fileCreated, readPosition,
+                      attributes.fileKey(), attributes.creationTime(), attributes.size())) {
+            // Rotated: the old file is complete, so drain it and flush its last line
+            readAppended(out);
+            if (partialLength > 0) {
+                emit(partial, 0, partialLength, out);
+            }
+            closeChannel();
+            openCurrentFile();
+            readAppended(out);
+        } else if (attributes.size() < readPosition) {
+            // Truncated in place: whatever was partial is gone too
+            position = 0;
+            readPosition = 0;
+            partialLength = 0;
+            skipping = false;
+            readAppended(out);
+        }
+    }
+
+    /**
+     * Is the file now at our path a different one from the file we read?
+     *
+     * 📝 NOTE: The file key (inode) is the reliable answer. Without one,
+     *   the creation time differs for a new file - except when the OS
+     *   reuses it for a file recreated under the same name right away
+     *   (NTFS "tunneling"). A file shorter than what we already read then
+     *   gives it away; treating a truncated file as rotated is harmless,
+     *   since the old channel has nothing left to read either.
+     */
+    static boolean isRotated(Object oldKey, FileTime oldCreated, long readPosition,
+                             Object newKey, FileTime newCreated, long newSize) {
+        if (oldKey != null || newKey != null) {
+            return !Objects.equals(oldKey, newKey);
+        }
+        return !Objects.equals(oldCreated, newCreated) || newSize < readPosition;
+    }
+
+    /**
+     * What the checkpoint records to recognise the file on restart.
+     */
+    static String identity(Object fileKey, FileTime created) {
+        return fileKey != null ? String.valueOf(fileKey) : "created:" + created.toMillis();
+    }
+
+    /**
+     * Read everything between readPosition and the current end of file.
+     */
+    private void readAppended(BlockingQueue<String> out) throws IOException, InterruptedException {
+        if (channel == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, readPosition);
+            if (read <= 0) {
+                return;
+            }
+            readPosition += read;
+            byte[] bytes = buffer.array();
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                if (partialLength > 0) {
+                    appendPartial(bytes, lineStart, i); // May be what tips it over MAX_LINE
+                }
+                if (skipping) {
+                    skipping = false; // End of the overlong line
+                } else if (partialLength > 0) {
+                    emit(partial, 0, partialLength, out);
+                    partialLength = 0;
+                } else {
+                    emit(bytes, lineStart, i, out);
+                }
+                lineStart = i + 1;
+                position = readPosition - read + lineStart;
+            }
+            appendPartial(bytes, lineStart, read); // Incomplete last line waits for its '\n'
+        }
+    }
+
+    /**
+     * Carry bytes of an unfinished line over to the next read. A line that
+     * grows past MAX_LINE is counted as skipped and dropped up to its '\n'.
+     */
+    private void appendPartial(byte[] bytes, int from, int to) {
+        if (skipping) {
+            return;
+        }
+        int length = to - from;
+        if (partialLength + length > MAX_LINE) {
+            skipping = true;
+            partialLength = 0;
+            skippedLines++;
+            return;
+        }
+        if (partialLength + length > partial.length) {
+            partial = Arrays.copyOf(partial, Math.max(partialLength + length, partial.length * 2));
+        }
+        System.arraycopy(bytes, from, partial, partialLength, length);
+        partialLength += length;
+    }
+
+    private void emit(byte[] bytes, int from, int to, BlockingQueue<String> out) throws InterruptedException {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--; // Windows line endings
+        }
+        if (to > from) { // Skip blank lines
+            out.put(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            linesFed++;
+        }
+    }
+
+    // ---- Checkpoint ----
+
+    private void saveCheckpoint() throws IOException {
+        lastCheckpoint = System.nanoTime();
+        if (channel == null) {
+            return;
+        }
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(temp, List.of(identity(fileKey, fileCreated), String.valueOf(position)),
+            StandardCharsets.UTF_8);
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntFunction;
+
+/**
+ * Benchmark: throughput and tail latency of one DataPipeline stage per
+ * transport (the queues in front of and behind the workers).
+ *
+ * Compares:
+ *   1. LinkedBlockingQueue  (node per element, two locks)
+ *   2. ArrayBlockingQueue   (preallocated, one lock)
+ *   3. RingBufferQueue      (preallocated, lock-free) × each WaitStrategy
+ *
+ * 📝 NOTE: Latency is end to end: producer put() → worker → consumer take().
+ *   Send times live in a preallocated long[] indexed by the record, so the
+ *   measurement itself doesn't allocate or box on the hot path.
+ *
+ * ⚠️ AVOID: Reading BUSY_SPIN numbers from a machine with fewer cores than
+ *   threads (producer + workers + consumer). Spinners then fight the thread
+ *   they're waiting for, and the numbers say more about the box than the queue.
+ *
+ * Run: mvn -q exec:java -Dexec.mainClass=com.concurrency.projects.pipeline.TransportBenchmark
+ *      (optional args: records workers)
+ */
+class TransportBenchmark {
+
+    private static final int CAPACITY = 1024;
+    private static final int WARMUP_ROUNDS = 2;
+
+    public static void main(String[] args) throws InterruptedException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        Integer[] tokens = new Integer[records];
+        for (int i = 0; i < records; i++) {
+            tokens[i] = i; // Boxed once up front, not inside the timed loop
+        }
+
+        System.out.printf("%d records, %d workers, %d cores%n",
+            records, workers, Runtime.getRuntime().availableProcessors());
+        measure("LinkedBlockingQueue   ", LinkedBlockingQueue::new, tokens, workers);
+        measure("ArrayBlockingQueue    ", ArrayBlockingQueue::new, tokens, workers);
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            measure(String.format("RingBuffer %-11s", strategy),
+                capacity -> new RingBufferQueue<>(capacity, strategy), tokens, workers);
+        }
+    }
+
+    private static void measure(String name, IntFunction<BlockingQueue<Integer>> transport,
+                                Integer[] tokens, int workers) throws InterruptedException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(transport, tokens, workers, new LatencyHistogram());
+        }
+        LatencyHistogram latency = new LatencyHistogram();
+        long elapsed = run(transport, tokens, workers, latency);
+
+        System.out.printf("%s %9.0f records/s  p50 %7.1f us  p99 %8.1f us  max %9.1f us%n",
+            name,
+            tokens.length / (elapsed / 1e9),
+            latency.getPercentileNanos(50) / 1e3,
+            latency.getPercentileNanos(99) / 1e3,
+            latency.getMaxNanos() / 1e3);
+    }
+
+    private static long run(IntFunction<BlockingQueue<Integer>> transport, Integer[] tokens,
+                            int workers, LatencyHistogram latency) throws InterruptedException {
+        BlockingQueue<Integer> in = transport.apply(CAPACITY);
+        BlockingQueue<Integer> out = transport.apply(CAPACITY);
+        long[] sentAt = new long[tokens.length];
+        DataPipeline<Integer, Integer> stage = new DataPipeline<>(in, out, x -> x, workers);
+        stage.start();
+
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < tokens.length; i++) {
+                    sentAt[i] = System.nanoTime(); // Visible to the consumer via the queues
+                    in.put(tokens[i]);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long start = System.nanoTime();
+        producer.start();
+        for (int i = 0; i < tokens.length; i++) {
+            int token = out.take();
+            latency.record(System.nanoTime() - sentAt[token]);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        producer.join();
+        stage.stop();
+        return elapsed;
+    }
+}
@@ -0,0 +1,62 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a RingBufferQueue caller does while the ring is full (producer)
+ * or empty (consumer).
+ *
+ * 📝 NOTE: There is no lock and no condition variable to sleep on, so a
+ *   waiting thread keeps re-checking the sequence. The strategy decides how
+ *   much CPU that costs versus how quickly the thread reacts:
+ *     BUSY_SPIN → lowest latency, burns a full core per waiting thread
+ *     YIELD     → spins briefly, then gives the core to other threads
+ *     PARK      → spins, yields, then sleeps in short parks (cheapest CPU)
+ *
+ * ⚠️ AVOID: BUSY_SPIN with more waiting threads than cores. Spinners then
+ *   steal the CPU from the very thread they are waiting for.
+ */
+public enum WaitStrategy {
+
+    BUSY_SPIN {
+        @Override
+        void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+
+    YIELD {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    PARK {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    /**
+     * Wait a little before the next attempt.
+     *
+     * @param attempt how many times the caller has already waited (from 0)
+     */
+    abstract void idle(int attempt);
+}
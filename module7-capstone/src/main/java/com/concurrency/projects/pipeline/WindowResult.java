@@ -0,0 +1,44 @@
+package com.concurrency.projects.pipeline;
+
+import java.time.Instant;
+
+/**
+ * The count for one key in one closed window: [windowStart, windowEnd).
+ * Times are event-time epoch millis.
+ */
+public final class WindowResult<K> {
+
+    private final K key;
+    private final long windowStart;
+    private final long windowEnd;
+    private final long count;
+
+    public WindowResult(K key, long windowStart, long windowEnd, long count) {
+        this.key = key;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.count = count;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s, %s) %s=%d",
+            Instant.ofEpochMilli(windowStart), Instant.ofEpochMilli(windowEnd), key, count);
+    }
+}
@@ -0,0 +1,281 @@
+package com.concurrency.projects.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counts records per key over event-time windows.
+ *
+ * Use it as the processor of a batched stage:
+ *   DataPipeline.batched(errors, alerts,
+ *       WindowedAggregator.tumbling(10_000, 2_000, e -> e.timestamp, e -> host(e)), 1, 256)
+ *   → one WindowResult per (host, 10s window) instead of one line per error.
+ *
+ * Window kinds:
+ *   - tumbling(size)        → [0,10s) [10s,20s) ...  each record in 1 window
+ *   - sliding(size, slide)  → [0,10s) [5s,15s) ...   each record in size/slide windows
+ *
+ * 📝 NOTE: Windows follow event time (the timestamp in the record), not the
+ *   clock of the worker. Records arrive somewhat out of order, so we can't
+ *   close a window the moment a newer record shows up. Instead:
+ *     watermark = max event time seen - allowedLateness
+ *   A window [start, end) is closed and emitted once end <= watermark.
+ *   A record whose windows are all closed already is late: it is counted
+ *   in getLateCount() and dropped.
+ *
+ * 📝 NOTE: Results are emitted incrementally - a processBatch() call returns
+ *   the windows that closed during that batch, nothing more. State only
+ *   holds the windows still open, each an ObjectLongMap (key → primitive
+ *   count), recycled through a free list once the window is emitted.
+ *
+ * 💡 THINK: Event time only moves when records arrive. If the stream goes
+ *   quiet, the last windows stay open - call flush() at end of input.
+ *
+ * ⚠️ AVOID: Running the stage with many workers. Calls are synchronized so
+ *   it stays correct, but workers just queue up on the lock. One worker
+ *   (or one aggregator per partition) is the intended setup.
+ *
+ * @param <T> record type
+ * @param <K> grouping key
+ */
+public class WindowedAggregator<T, K> implements BatchProcessor<T, WindowResult<K>> {
+
+    private static final int INITIAL_KEYS = 16;
+
+    /**
+     * Counts for one window. Reused after the window is emitted.
+     */
+    private static final class Window<K> {
+        long start;
+        final ObjectLongMap<K> counts = new ObjectLongMap<>(INITIAL_KEYS);
+    }
+
+    private final long size;
+    private final long slide;
+    private final long allowedLateness;
+    private final ToLongFunction<? super T> eventTime;
+    private final Function<? super T, ? extends K> keyExtractor;
+
+    // Guarded by this
+    private final List<Window<K>> open = new ArrayList<>(); // contiguous starts, oldest first
+    private final ArrayDeque<Window<K>> free = new ArrayDeque<>();
+    private long maxEventTime = Long.MIN_VALUE;
+    private long nextOpenStart = Long.MIN_VALUE; // windows starting before this are closed
+    private long lateCount = 0;
+
+    /**
+     * @param size window length in event-time millis
+     * @param slide distance between window starts (== size for tumbling)
+     * @param allowedLateness how far behind the newest record a record may be
+     * @param eventTime extracts the event timestamp (epoch millis)
+     * @param keyExtractor grouping key (null keys are skipped)
+     */
+    public WindowedAggregator(long size, long slide, long allowedLateness,
+                              ToLongFunction<? super T> eventTime,
+                              Function<? super T, ? extends K> keyExtractor) {
+        if (size <= 0 || slide <= 0 || slide > size) {
+            throw new IllegalArgumentException(
+                "Need 0 < slide <= size, got size=" + size + " slide=" + slide);
+        }
+        if (allowedLateness < 0) {
+            throw new IllegalArgumentException("allowedLateness must be >= 0: " + allowedLateness);
+        }
+        this.size = size;
+        this.slide = slide;
+        this.allowedLateness = allowedLateness;
+        this.eventTime = eventTime;
+        this.keyExtractor = keyExtractor;
+    }
+
+    public static <T, K> WindowedAggregator<T, K> tumbling(long size, long allowedLateness,
+                                                            ToLongFunction<? super T> eventTime,
+                                                            Function<? super T, ? extends K> keyExtractor) {
+        return new WindowedAggregator<>(size, size, allowedLateness, eventTime, keyExtractor);
+    }
+
+    public static <T, K> WindowedAggregator<T, K> sliding(long size, long slide, long allowedLateness,
+                                                           ToLongFunction<? super T> eventTime,
+                                                           Function<? super T, ? extends K> keyExtractor) {
+        return new WindowedAggregator<>(size, slide, allowedLateness, eventTime, keyExtractor);
+    }
+
+    /**
+     * Add the batch to its windows and return the results of every window
+     * the batch closed (empty when none closed).
+     */
+    @Override
+    public synchronized List<WindowResult<K>> processBatch(List<T> batch) {
+        List<WindowResult<K>> results = new ArrayList<>();
+        for (T record : batch) {
+            add(record, results);
+        }
+        return results;
+    }
+
+    /**
+     * Close and return every open window, regardless of the watermark.
+     * Call at end of input; records for those windows are late afterwards.
+     */
+    public synchronized List<WindowResult<K>> flush() {
+        List<WindowResult<K>> results = new ArrayList<>();
+        if (!open.isEmpty()) {
+            closeBefore(open.get(open.size() - 1).start + slide, results);
+        }
+        return results;
+    }
+
+    private void add(T record, List<WindowResult<K>> results) {
+        K key = keyExtractor.apply(record);
+        if (key == null) {
+            return;
+        }
+        long time = eventTime.applyAsLong(record);
+        if (time > maxEventTime) {
+            maxEventTime = time;
+            // Watermark moved: close windows with end <= watermark before counting,
+            // so a later record in the same batch sees the same verdict as in the next one
+            closeBefore(firstStartAfter(maxEventTime - allowedLateness - size), results);
+        }
+
+        // Windows containing time: starts in (time - size, lastStart], stepping by slide
+        long lastStart = Math.floorDiv(time, slide) * slide;
+        long firstStart = Math.max(firstStartAfter(time - size), nextOpenStart);
+        if (firstStart > lastStart) {
+            lateCount++; // Every window it belongs to is already emitted
+            return;
+        }
+        for (long start = firstStart; start <= lastStart; start += slide) {
+            windowFor(start).counts.add(key, 1);
+        }
+    }
+
+    /**
+     * Smallest window start strictly greater than time.
+     */
+    private long firstStartAfter(long time) {
+        return Math.floorDiv(time, slide) * slide + slide;
+    }
+
+    /**
+     * Open window starting at start, creating it (and any gap before it).
+     */
+    private Window<K> windowFor(long start) {
+        if (open.isEmpty()) {
+            open.add(acquire(start));
+            return open.get(0);
+        }
+        long base = open.get(0).start;
+        while (start < base) {
+            base -= slide;
+            open.add(0, acquire(base)); // Out-of-order record for an older, still-open window
+        }
+        int index = (int) ((start - base) / slide);
+        while (open.size() <= index) {
+            open.add(acquire(open.get(open.size() - 1).start + slide));
+        }
+        return open.get(index);
+    }
+
+    /**
+     * Emit and recycle all windows starting before boundary.
+     */
+    private void closeBefore(long boundary, List<WindowResult<K>> results) {
+        int closed = 0;
+        while (closed < open.size() && open.get(closed).start < boundary) {
+            Window<K> window = open.get(closed++);
+            long start = window.start;
+            long end = start + size;
+            window.counts.forEach((key, count) -> results.add(new WindowResult<>(key, start, end, count)));
+            window.counts.clear();
+            free.push(window);
+        }
+        open.subList(0, closed).clear();
+        nextOpenStart = Math.max(nextOpenStart, boundary);
+    }
+
+    private Window<K> acquire(long start) {
+        Window<K> window = free.poll();
+        if (window == null) {
+            window = new Window<>();
+        }
+        window.start = start;
+        return window;
+    }
+
+    // ---- Introspection ----
+
+    /**
+     * Records dropped because they arrived after their windows closed.
+     */
+    public synchronized long getLateCount() {
+        return lateCount;
+    }
+
+    /**
+     * Current watermark, or Long.MIN_VALUE before the first record.
+     */
+    public synchronized long getWatermark() {
+        return maxEventTime == Long.MIN_VALUE ? Long.MIN_VALUE : maxEventTime - allowedLateness;
+    }
+
+    public synchronized int getOpenWindowCount() {
+        return open.size();
+    }
+
+    /**
+     * Demo: parse → keep ERRORs → ERROR count per host per 10s (tumbling),
+     * tolerating records up to 2s out of order.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        BlockingQueue<String> rawLogs = new LinkedBlockingQueue<>(1000);
+        BlockingQueue<LogEntry> errors = new LinkedBlockingQueue<>(1000);
+        BlockingQueue<WindowResult<String>> alerts = new LinkedBlockingQueue<>();
+
+        StagedPipeline parse = DataPipeline.source(rawLogs)
+            .map(LogEntry::parse)
+            .filter(entry -> entry.level == LogLevel.ERROR)
+            .sink(errors);
+
+        // Host is the first word of the message in these samples
+        WindowedAggregator<LogEntry, String> errorsPerHost =
+            WindowedAggregator.tumbling(10_000, 2_000,
+                entry -> entry.timestamp,
+                entry -> entry.message.substring(0, Math.max(0, entry.message.indexOf(' '))));
+        DataPipeline<LogEntry, WindowResult<String>> aggregate =
+            DataPipeline.batched(errors, alerts, errorsPerHost, 1, 256);
+
+        aggregate.start();
+        parse.start();
+
+        String[] sampleLogs = {
+            "2024-01-07 10:00:01 ERROR web-1 Database connection failed",
+            "2024-01-07 10:00:03 ERROR web-2 Database connection failed",
+            "2024-01-07 10:00:04 INFO web-1 Retrying...",
+            "2024-01-07 10:00:08 ERROR web-1 Still failing",
+            "2024-01-07 10:00:11 ERROR web-1 Still failing",
+            "2024-01-07 10:00:09 ERROR web-2 Late but within 2s",   // still counted in [0s,10s)
+            "2024-01-07 10:00:15 ERROR web-2 Timeout",
+            "2024-01-07 10:00:07 ERROR web-1 Too late",              // window already closed
+            "2024-01-07 10:00:24 ERROR web-1 Disk full"
+        };
+        for (String log : sampleLogs) {
+            rawLogs.put(log);
+        }
+
+        parse.drain(1, TimeUnit.SECONDS);     // Every line parsed and handed on...
+        aggregate.drain(1, TimeUnit.SECONDS); // ...and aggregated before the final flush
+        alerts.addAll(errorsPerHost.flush());
+
+        WindowResult<String> result;
+        while ((result = alerts.poll()) != null) {
+            System.out.println("ALERT: " + result);
+        }
+        System.out.println("Late records dropped: " + errorsPerHost.getLateCount());
+    }
+}
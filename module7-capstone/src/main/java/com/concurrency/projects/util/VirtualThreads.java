@@ -0,0 +1,58 @@
+package com.concurrency.projects.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads (JDK 21+) from code that still compiles on 17.
+ *
+ * 📝 NOTE: The project targets Java 17, so Executors.newVirtualThreadPerTaskExecutor()
+ *   cannot be called directly. We look it up reflectively once; run the
+ *   same classes on a 21+ JVM and you get real virtual threads, on 17 a
+ *   cached pool of platform threads. No special build is needed.
+ *
+ * 💡 THINK: Why virtual threads for I/O-bound stages?
+ *   A worker blocked on a slow store holds a whole platform thread (~1MB stack,
+ *   a kernel thread). A blocked virtual thread just parks its continuation on
+ *   the heap, so thousands of in-flight lookups cost almost nothing.
+ *
+ * Used by DataPipeline.virtualThreads() and for JobOrchestrator's IO jobs.
+ *
+ * ⚠️ AVOID: Blocking inside synchronized blocks on JDK 21 - it pins the
+ *   virtual thread to its carrier. Prefer ReentrantLock in the stage code.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_PER_TASK_EXECUTOR = lookup();
+
+    private VirtualThreads() {
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null; // Pre-21 runtime
+        }
+    }
+
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * One new virtual thread per submitted task, or a cached platform
+     * thread pool when virtual threads are not available.
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (NEW_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+}
@@ -0,0 +1,391 @@
+package com.concurrency.projects.orchestrator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Capstone Project 2: Job Orchestrator
+ */
+class JobOrchestratorTest {
+
+    private final JobOrchestrator orchestrator = new JobOrchestrator(4);
+
+    @AfterEach
+    void shutdown() {
+        orchestrator.shutdown();
+    }
+
+    @Test
+    void testExecuteAll_runsDeepChainInDependencyOrder() throws Exception {
+        int n = 20_000; // Deep enough to overflow a recursive future builder
+        AtomicInteger last = new AtomicInteger(-1);
+        for (int i = 0; i < n; i++) {
+            int step = i;
+            orchestrator.addJob(i == 0
+                ? new JobOrchestrator.Job("step-0", () -> last.getAndSet(0))
+                : new JobOrchestrator.Job("step-" + i, () -> last.getAndSet(step), "step-" + (i - 1)));
+        }
+
+        orchestrator.executeAll().join();
+
+        // Each job saw its predecessor's write, so the chain ran in order
+        for (int i = 0; i < n; i++) {
+            assertEquals(i - 1, orchestrator.getResult("step-" + i));
+        }
+    }
+
+    @Test
+    void testCompile_rejectsUnknownDependencyAndCycle() {
+        orchestrator.addJob(new JobOrchestrator.Job("a", () -> 1, "missing"));
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class, orchestrator::compile);
+        assertTrue(unknown.getMessage().contains("missing"));
+
+        orchestrator.addJob(new JobOrchestrator.Job("a", () -> 1, "c"));
+        orchestrator.addJob(new JobOrchestrator.Job("b", () -> 2, "a"));
+        orchestrator.addJob(new JobOrchestrator.Job("c", () -> 3, "b"));
+        orchestrator.addJob(new JobOrchestrator.Job("downstream", () -> 4, "c"));
+        IllegalArgumentException cycle = assertThrows(IllegalArgumentException.class, orchestrator::executeAll);
+        String message = cycle.getMessage();
+        assertTrue(message.contains("a") && message.contains("b") && message.contains("c"), message);
+        assertFalse(message.contains("downstream"), message); // Stuck behind the cycle, not on it
+    }
+
+    @Test
+    void testExecuteAll_startsLongestCriticalPathFirst() {
+        JobOrchestrator single = new JobOrchestrator(1); // One thread: start order is the schedule
+        try {
+            List<String> started = Collections.synchronizedList(new ArrayList<>());
+            for (int i = 0; i < 5; i++) {
+                String leaf = "leaf-" + i;
+                single.addJob(new JobOrchestrator.Job(leaf, () -> started.add(leaf)));
+            }
+            single.addJob(new JobOrchestrator.Job("chain-1", () -> started.add("chain-1")));
+            single.addJob(new JobOrchestrator.Job("chain-2", () -> started.add("chain-2"), "chain-1"));
+            single.addJob(new JobOrchestrator.Job("chain-3", () -> started.add("chain-3"), "chain-2"));
+
+            // Nothing measured yet: every job costs 1, so chain-1 (path 3) and
+            // chain-2 (path 2) go before the leaves (path 1), though FIFO wouldn't
+            single.executeAll().join();
+            assertEquals(List.of("chain-1", "chain-2"), started.subList(0, 2));
+
+            // A measured slow leaf outranks the chain of fast jobs next time
+            single.addJob(new JobOrchestrator.Job("slow", () -> {
+                sleepQuietly(30);
+                return started.add("slow");
+            }).cost(1, TimeUnit.NANOSECONDS)); // Declared estimate is wrong...
+            single.executeAll().join();
+            started.clear();
+            single.executeAll().join();        // ...but the measured one isn't
+            assertEquals("slow", started.get(0));
+            assertTrue(single.getCostEstimate("slow", TimeUnit.MILLISECONDS) >= 20);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void testCacheResults_skipsUnchangedJobs(@TempDir Path cacheDir) throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        String[] sources = {"v1"};
+
+        // A fresh orchestrator per run, like separate builds sharing a cache
+        Function<String, JobOrchestrator> build = fingerprint -> {
+            JobOrchestrator run = new JobOrchestrator(2);
+            try {
+                run.cacheResults(cacheDir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            run.addJob(new JobOrchestrator.Job("compile", () -> {
+                runs.incrementAndGet();
+                return "classes-" + sources[0];
+            }).fingerprint(fingerprint));
+            run.addJob(new JobOrchestrator.Job("package", () -> {
+                runs.incrementAndGet();
+                return "jar";
+            }, "compile").fingerprint("package-v1"));
+            return run;
+        };
+
+        JobOrchestrator first = build.apply("src-hash-1");
+        first.executeAll().join();
+        first.shutdown();
+        assertEquals(2, runs.get());
+
+        JobOrchestrator unchanged = build.apply("src-hash-1");
+        unchanged.executeAll().join();
+        unchanged.shutdown();
+        assertEquals(2, runs.get(), "Nothing changed: nothing runs");
+        assertEquals(2, unchanged.getCacheHits());
+        assertEquals("jar", unchanged.getResult("package"));
+
+        // Input changed but compile output is identical: package still hits
+        JobOrchestrator touched = build.apply("src-hash-2");
+        touched.executeAll().join();
+        touched.shutdown();
+        assertEquals(3, runs.get());
+
+        sources[0] = "v2";
+        JobOrchestrator edited = build.apply("src-hash-3");
+        edited.executeAll().join();
+        edited.shutdown();
+        assertEquals(5, runs.get());
+        assertEquals("classes-v2", edited.getResult("compile"));
+    }
+
+    /**
+     * A result whose serialization blows up, like a too-deep object graph.
+     */
+    private static final class ExplodingResult implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private void writeObject(ObjectOutputStream out) {
+            throw new StackOverflowError("simulated deep object graph");
+        }
+    }
+
+    @Test
+    void testCacheResults_cacheFailureStillFinishesTheJob(@TempDir Path cacheDir) throws Exception {
+        orchestrator.cacheResults(cacheDir);
+        orchestrator.addJob(new JobOrchestrator.Job("generate", ExplodingResult::new).fingerprint("gen-v1"));
+        orchestrator.addJob(new JobOrchestrator.Job("consume", () -> "consumed", "generate").fingerprint("c-v1"));
+
+        // Before: the error escaped before finish(), so the run never completed
+        orchestrator.executeAll().get(5, TimeUnit.SECONDS);
+
+        assertInstanceOf(ExplodingResult.class, orchestrator.getResult("generate"));
+        assertEquals("consumed", orchestrator.getResult("consume"));
+    }
+
+    @Test
+    void testCacheResults_abortedJobIsNotCached(@TempDir Path cacheDir) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger downloads = new AtomicInteger();
+        Function<Boolean, JobOrchestrator> build = withBadJob -> {
+            JobOrchestrator run = new JobOrchestrator(2);
+            try {
+                run.cacheResults(cacheDir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            run.addJob(new JobOrchestrator.Job("download", () -> {
+                if (downloads.incrementAndGet() > 1) {
+                    return "full";
+                }
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                    return "full";
+                } catch (InterruptedException e) {
+                    return "partial"; // Swallows the interrupt from abort()
+                }
+            }).fingerprint("v1"));
+            if (withBadJob) {
+                run.addJob(new JobOrchestrator.Job("bad", () -> {
+                    try {
+                        started.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    throw new IllegalStateException("boom");
+                }));
+            }
+            return run;
+        };
+
+        JobOrchestrator aborted = build.apply(true);
+        assertThrows(CompletionException.class, () -> aborted.executeAll().join());
+        aborted.shutdown(); // Waits for "download" to return its partial value
+        assertEquals(-1, aborted.getCostEstimate("download", TimeUnit.NANOSECONDS),
+            "A cut-short run says nothing about the job's cost");
+
+        JobOrchestrator next = build.apply(false);
+        next.executeAll().get(5, TimeUnit.SECONDS);
+        next.shutdown();
+        assertEquals(0, next.getCacheHits());
+        assertEquals("full", next.getResult("download"));
+    }
+
+    @Test
+    void testResourceClasses_runOnOwnExecutorsWithinLimits() throws Exception {
+        JobOrchestrator single = new JobOrchestrator(1).limit(ResourceClass.MEMORY, 1).limit(ResourceClass.IO, 3);
+        try {
+            // Waiting IO jobs must not hold the only CPU slot, or "release" never runs
+            CountDownLatch released = new CountDownLatch(1);
+            AtomicInteger ioInFlight = new AtomicInteger();
+            AtomicInteger maxIoInFlight = new AtomicInteger();
+            for (int i = 0; i < 6; i++) {
+                single.addJob(new JobOrchestrator.Job("download-" + i, () -> {
+                    maxIoInFlight.accumulateAndGet(ioInFlight.incrementAndGet(), Math::max);
+                    try {
+                        return released.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        ioInFlight.decrementAndGet();
+                    }
+                }).resourceClass(ResourceClass.IO));
+            }
+            single.addJob(new JobOrchestrator.Job("release", () -> {
+                sleepQuietly(50); // Give the downloads time to pile up
+                released.countDown();
+                return null;
+            }));
+            single.addJob(new JobOrchestrator.Job("index", () -> "big", "release")
+                .resourceClass(ResourceClass.MEMORY));
+
+            single.executeAll().join();
+            assertEquals(3, maxIoInFlight.get());
+            assertEquals(Boolean.TRUE, single.getResult("download-5"));
+            assertEquals("big", single.getResult("index"));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void testExecuteAll_continueOnErrorSkipsDependentsOnly() throws Exception {
+        AtomicInteger ran = new AtomicInteger();
+        orchestrator.onFailure(FailurePolicy.CONTINUE_ON_ERROR);
+        orchestrator.addJob(new JobOrchestrator.Job("bad", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        orchestrator.addJob(new JobOrchestrator.Job("after-bad", () -> ran.incrementAndGet(), "bad"));
+        orchestrator.addJob(new JobOrchestrator.Job("after-after-bad", () -> ran.incrementAndGet(), "after-bad"));
+        orchestrator.addJob(new JobOrchestrator.Job("good", () -> "ok"));
+
+        CompletionException failure = assertThrows(CompletionException.class,
+            () -> orchestrator.executeAll().join());
+        assertEquals("boom", failure.getCause().getMessage());
+
+        assertEquals("ok", orchestrator.getResult("good"));
+        ExecutionException skipped = assertThrows(ExecutionException.class,
+            () -> orchestrator.getResult("after-bad"));
+        assertEquals("boom", skipped.getCause().getMessage());
+        assertThrows(ExecutionException.class, () -> orchestrator.getResult("after-after-bad"));
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    void testExecuteAll_failFastCancelsTheRun() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        AtomicInteger ran = new AtomicInteger();
+        orchestrator.addJob(new JobOrchestrator.Job("slow", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+                return "finished";
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                throw new IllegalStateException(e);
+            }
+        }));
+        orchestrator.addJob(new JobOrchestrator.Job("bad", () -> {
+            try {
+                started.await(); // Fail only once "slow" is running
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            throw new IllegalStateException("boom");
+        }));
+        orchestrator.addJob(new JobOrchestrator.Job("after-slow", () -> ran.incrementAndGet(), "slow"));
+
+        long start = System.nanoTime();
+        CompletionException failure = assertThrows(CompletionException.class,
+            () -> orchestrator.executeAll().join());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000,
+            "Must not wait for the slow sibling");
+        assertEquals("boom", failure.getCause().getMessage());
+
+        CancellationException cancelled = assertThrows(CancellationException.class,
+            () -> orchestrator.getResult("after-slow"));
+        assertEquals("boom", cancelled.getCause().getMessage());
+        assertThrows(CancellationException.class, () -> orchestrator.getResult("slow"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (interrupted.get() == 0 && System.nanoTime() < deadline) {
+            sleepQuietly(10);
+        }
+        assertEquals(1, interrupted.get(), "The running sibling is interrupted");
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    void testExecuteAll_nextRunWaitsForAbortedJobsToLeave() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch letGo = new CountDownLatch(1);
+        AtomicInteger stubbornCalls = new AtomicInteger();
+        AtomicInteger badCalls = new AtomicInteger();
+        AtomicInteger secondRunStarts = new AtomicInteger();
+        orchestrator.addJob(new JobOrchestrator.Job("stubborn", () -> {
+            if (stubbornCalls.incrementAndGet() > 1) {
+                secondRunStarts.incrementAndGet();
+                return "quick";
+            }
+            started.countDown();
+            boolean waited = false;
+            while (!waited) { // Ignores the interrupt from abort()
+                try {
+                    waited = letGo.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // Keep going
+                }
+            }
+            return "late";
+        }));
+        orchestrator.addJob(new JobOrchestrator.Job("bad", () -> {
+            if (badCalls.incrementAndGet() > 1) {
+                secondRunStarts.incrementAndGet();
+                return "fixed";
+            }
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            throw new IllegalStateException("boom");
+        }));
+
+        assertThrows(CompletionException.class, () -> orchestrator.executeAll().join());
+
+        // The first run is over for the caller, but "stubborn" still holds a thread
+        CompletableFuture<Void> second = orchestrator.executeAll();
+        Thread.sleep(200);
+        assertEquals(0, secondRunStarts.get(), "Nothing may start while the aborted run has jobs running");
+        assertFalse(second.isDone());
+
+        letGo.countDown();
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(2, secondRunStarts.get());
+        assertEquals("quick", orchestrator.getResult("stubborn"));
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
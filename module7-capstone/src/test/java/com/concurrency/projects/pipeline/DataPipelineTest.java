@@ -0,0 +1,531 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Capstone Project 1: Data Pipeline
+ */
+class DataPipelineTest {
+
+    private static <T> List<T> take(BlockingQueue<T> queue, int count) throws InterruptedException {
+        List<T> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            T item = queue.poll(5, TimeUnit.SECONDS);
+            assertNotNull(item, "Timed out after " + results.size() + " items");
+            results.add(item);
+        }
+        return results;
+    }
+
+    @Test
+    void testBuilder_fusesStagesWithSameParallelism() throws InterruptedException {
+        BlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        BlockingQueue<String> out = new LinkedBlockingQueue<>();
+
+        StagedPipeline pipeline = DataPipeline.source(in)
+            .workers(2)
+            .map(x -> x * 10)
+            .filter(x -> x % 20 == 0)
+            .map(x -> "v" + x)
+            .sink(out);
+
+        // map/filter/map share parallelism → one fused stage, no extra queue
+        assertEquals(1, pipeline.getStages().size());
+
+        pipeline.start();
+        for (int i = 1; i <= 10; i++) {
+            in.put(i);
+        }
+        List<String> results = take(out, 5);
+        pipeline.stop();
+
+        results.sort(null);
+        assertEquals(List.of("v100", "v20", "v40", "v60", "v80"), results);
+    }
+
+    @Test
+    void testBuilder_insertsQueueOnlyWhereParallelismChanges() throws InterruptedException {
+        BlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> out = new LinkedBlockingQueue<>();
+
+        StagedPipeline pipeline = DataPipeline.source(in)
+            .workers(4)
+            .map(x -> x + 1)
+            .workers(4)          // same parallelism: still fused
+            .map(x -> x * 2)
+            .workers(1)          // parallelism changes: new segment
+            .map(x -> x - 1)
+            .sink(out);
+
+        assertEquals(2, pipeline.getStages().size());
+
+        pipeline.start();
+        in.put(1);
+        assertEquals(List.of(3), take(out, 1));
+        pipeline.stop();
+    }
+
+    @Test
+    void testBatched_drainsUpToMaxBatchSize() throws InterruptedException {
+        BlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> out = new LinkedBlockingQueue<>();
+        for (int i = 0; i < 100; i++) {
+            in.put(i); // Pre-filled so the worker sees full batches
+        }
+
+        AtomicInteger largestBatch = new AtomicInteger();
+        DataPipeline<Integer, Integer> stage = DataPipeline.batched(in, out, batch -> {
+            largestBatch.accumulateAndGet(batch.size(), Math::max);
+            return BatchProcessor.perRecord((Integer x) -> x % 2 == 0 ? x : null).processBatch(batch);
+        }, 1, 16);
+
+        stage.start();
+        List<Integer> results = take(out, 50);
+        stage.stop();
+
+        assertEquals(16, largestBatch.get());
+        results.sort(null);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i * 2, results.get(i));
+        }
+    }
+
+    @Test
+    void testOrdered_emitsInInputOrderWithManyWorkers() throws InterruptedException {
+        BlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> out = new LinkedBlockingQueue<>();
+
+        DataPipeline<Integer, Integer> stage = new DataPipeline<Integer, Integer>(in, out, x -> {
+            // Early records are slowest, so unordered workers would finish them last
+            sleepQuietly(x < 10 ? 20 : 0);
+            return x % 3 == 0 ? null : x;
+        }, 4).ordered(8);
+
+        stage.start();
+        for (int i = 0; i < 60; i++) {
+            in.put(i);
+        }
+        List<Integer> results = take(out, 40);
+        stage.stop();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            if (i % 3 != 0) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, results);
+        assertTrue(stage.getReorderBuffer().getMaxParkedCount() <= 8);
+    }
+
+    @Test
+    void testDrain_processesQueuedInputThenStops() throws InterruptedException {
+        BlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> mid = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> out = new LinkedBlockingQueue<>();
+
+        // Ordered batches, then partitioned: the two trickiest end-of-input paths
+        DataPipeline<Integer, Integer> first = DataPipeline.batched(in, mid,
+            BatchProcessor.perRecord((Integer x) -> x + 1), 3, 7).ordered(4);
+        DataPipeline<Integer, Integer> second = new DataPipeline<Integer, Integer>(mid, out, x -> {
+            sleepQuietly(x % 50 == 0 ? 1 : 0);
+            return x;
+        }, 3).partitionedBy(x -> x % 5, 8);
+        first.start();
+        second.start();
+        for (int i = 0; i < 500; i++) {
+            in.put(i);
+        }
+
+        assertTrue(first.drain(5, TimeUnit.SECONDS));
+        assertTrue(second.drain(5, TimeUnit.SECONDS));
+        assertFalse(first.isRunning());
+        assertEquals(0, second.getWorkerCount());
+
+        List<Integer> results = new ArrayList<>(out);
+        results.sort(null);
+        assertEquals(500, results.size());
+        assertEquals(1, results.get(0));
+        assertEquals(500, results.get(499));
+        assertTrue(in.isEmpty() && mid.isEmpty());
+
+        // An idle stage blocks in take(): stop() interrupts it, so every worker has
+        // left when it returns (stop() gives up waiting after 5s otherwise)
+        DataPipeline<Integer, Integer> idle = new DataPipeline<Integer, Integer>(
+            new LinkedBlockingQueue<>(), out, x -> x, 4);
+        idle.start();
+        long start = System.nanoTime();
+        idle.stop();
+        assertEquals(0, idle.getWorkerCount());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void testDrain_overSpilledQueueAndWithinTimeout(@TempDir Path dir) throws Exception {
+        BlockingQueue<String> out = new LinkedBlockingQueue<>();
+        try (SpillingBlockingQueue<String> in = new SpillingBlockingQueue<>(10, dir, SpillCodec.utf8())) {
+            for (int i = 0; i < 200; i++) {
+                in.put("r" + i);
+            }
+            assertTrue(in.getSpilledCount() > 0);
+
+            // The queue can only hold Strings: drain() must not put anything into it
+            DataPipeline<String, String> stage = new DataPipeline<String, String>(in, out, String::toUpperCase, 3);
+            stage.start();
+            assertTrue(stage.drain(5, TimeUnit.SECONDS));
+            assertEquals(200, out.size());
+            assertTrue(in.isEmpty());
+        }
+
+        // A stuck record: drain() gives up at its timeout, full input queue or not
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<String> full = new ArrayBlockingQueue<>(2);
+        DataPipeline<String, String> stuck = new DataPipeline<String, String>(full, out, record -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return record;
+        }, 1);
+        stuck.start();
+        full.put("held");
+        full.put("queued-1");
+        full.put("queued-2");
+
+        long start = System.nanoTime();
+        assertFalse(stuck.drain(200, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertFalse(stuck.isRunning());
+    }
+
+    @Test
+    void testPartitioned_preservesPerKeyOrder() throws InterruptedException {
+        BlockingQueue<String> in = new LinkedBlockingQueue<>();
+        BlockingQueue<String> out = new LinkedBlockingQueue<>();
+
+        // Records look like "host-3:17"; key is the host
+        DataPipeline<String, String> stage = new DataPipeline<String, String>(in, out, record -> {
+            sleepQuietly(record.hashCode() & 1);
+            return record;
+        }, 4).partitionedBy(record -> record.substring(0, record.indexOf(':')), 16);
+
+        stage.start();
+        for (int seq = 0; seq < 50; seq++) {
+            for (int host = 0; host < 5; host++) {
+                in.put("host-" + host + ":" + seq);
+            }
+        }
+        List<String> results = take(out, 250);
+        stage.stop();
+
+        int[] lastSeq = {-1, -1, -1, -1, -1};
+        for (String record : results) {
+            int host = record.charAt(5) - '0';
+            int seq = Integer.parseInt(record.substring(record.indexOf(':') + 1));
+            assertEquals(lastSeq[host] + 1, seq, "Out of order for host-" + host);
+            lastSeq[host] = seq;
+        }
+    }
+
+    @Test
+    void testElastic_scalesUpUnderLoadAndBackDownWhenIdle() throws InterruptedException {
+        BlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> out = new LinkedBlockingQueue<>();
+
+        DataPipeline<Integer, Integer> stage = new DataPipeline<Integer, Integer>(in, out, x -> {
+            sleepQuietly(5);
+            return x;
+        }, 1).elastic(1, 4, 10, 50, 200, TimeUnit.MILLISECONDS);
+
+        stage.start();
+        assertEquals(1, stage.getWorkerCount());
+        for (int i = 0; i < 400; i++) {
+            in.put(i);
+        }
+
+        int peak = 1;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (peak < 4 && System.currentTimeMillis() < deadline) {
+            peak = Math.max(peak, stage.getWorkerCount());
+            Thread.sleep(20);
+        }
+        assertTrue(peak > 1, "Expected scale-up under sustained queue depth");
+        assertTrue(peak <= 4);
+
+        take(out, 400);
+        deadline = System.currentTimeMillis() + 5000;
+        while (stage.getWorkerCount() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, stage.getWorkerCount(), "Idle workers should retire down to min");
+        stage.stop();
+    }
+
+    @Test
+    void testMetrics_countRecordsAndExposeOverJmx() throws Exception {
+        BlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> out = new LinkedBlockingQueue<>();
+
+        DataPipeline<Integer, Integer> stage = new DataPipeline<>(in, out, x -> {
+            if (x == 13) {
+                throw new IllegalArgumentException("unlucky");
+            }
+            return x % 2 == 0 ? x : null;
+        }, 2);
+        stage.registerMBean("metrics-test");
+        stage.start();
+        for (int i = 0; i < 20; i++) {
+            in.put(i);
+        }
+        take(out, 10);
+
+        StageMetrics metrics = stage.getMetrics();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.getRecordsOut() + metrics.getRecordsDropped() < 20
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(20, metrics.getRecordsIn());
+        assertEquals(10, metrics.getRecordsOut());
+        assertEquals(10, metrics.getRecordsDropped()); // 9 filtered + 1 failed
+        assertEquals(1, metrics.getErrors());
+        assertEquals(2, metrics.getWorkerBusyRatios().size());
+        assertTrue(metrics.getProcessingTime().getCount() >= 19);
+
+        ObjectName name = new ObjectName(
+            "com.concurrency.projects.pipeline:type=DataPipeline,name=\"metrics-test\"");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(10L, server.getAttribute(name, "RecordsOut"));
+
+        stage.stop();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    void testVirtualThreads_boundsInFlightAndKeepsOrder() throws InterruptedException {
+        BlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> out = new LinkedBlockingQueue<>();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        DataPipeline<Integer, Integer> stage = new DataPipeline<Integer, Integer>(in, out, x -> {
+            peak.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            sleepQuietly(20); // Simulated slow lookup
+            concurrent.decrementAndGet();
+            return x;
+        }, 1).virtualThreads(16).ordered(64);
+
+        stage.start();
+        for (int i = 0; i < 100; i++) {
+            in.put(i);
+        }
+        List<Integer> results = take(out, 100);
+        stage.stop();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, results.get(i));
+        }
+        assertTrue(peak.get() > 1, "Lookups should overlap");
+        assertTrue(peak.get() <= 16, "In-flight limit exceeded: " + peak.get());
+    }
+
+    @Test
+    void testRingBufferTransport_deliversEveryRecordAcrossSegments() throws InterruptedException {
+        BlockingQueue<Integer> in = new RingBufferQueue<>(64, WaitStrategy.PARK);
+        BlockingQueue<Integer> out = new RingBufferQueue<>(64, WaitStrategy.PARK);
+
+        StagedPipeline pipeline = DataPipeline.source(in)
+            .transport(capacity -> new RingBufferQueue<>(capacity, WaitStrategy.YIELD))
+            .queueCapacity(16)
+            .workers(3)
+            .map(x -> x + 1)
+            .workers(2)
+            .map(x -> x * 2)
+            .sink(out);
+        pipeline.start();
+
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 5000; i++) {
+                    in.put(i); // Rings are small: the producer must run alongside take()
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        List<Integer> results = take(out, 5000);
+        producer.join();
+        pipeline.stop();
+
+        long sum = 0;
+        for (int value : results) {
+            sum += value;
+        }
+        assertEquals(5000, results.size());
+        assertEquals(2L * 5000 * 5001 / 2, sum); // Every (i + 1) * 2 exactly once
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    void testBulk_processesFiniteInputInOrderOnForkJoinPool() throws Exception {
+        List<Integer> input = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            input.add(i);
+        }
+
+        List<Integer> evensDoubled = DataPipeline.bulk(input)
+            .filter(x -> x % 2 == 0)
+            .map(x -> x * 2)
+            .toList()
+            .get(10, TimeUnit.SECONDS);
+        assertEquals(50_000, evensDoubled.size());
+        for (int i = 0; i < evensDoubled.size(); i++) {
+            assertEquals(i * 4, evensDoubled.get(i)); // Input order kept across chunks
+        }
+
+        AtomicInteger seen = new AtomicInteger();
+        long delivered = DataPipeline.bulk(input)
+            .filter(x -> x % 10 == 0)
+            .forEach(x -> seen.incrementAndGet())
+            .get(10, TimeUnit.SECONDS);
+        assertEquals(10_000, delivered);
+        assertEquals(10_000, seen.get());
+
+        CompletableFuture<List<Integer>> failing = DataPipeline.bulk(input)
+            .map(DataPipelineTest::failOn777)
+            .toList();
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(ArithmeticException.class, failed.getCause());
+    }
+
+    private static int failOn777(int x) {
+        if (x == 777) {
+            throw new ArithmeticException("boom");
+        }
+        return x;
+    }
+
+    @Test
+    void testAlertRuleFilter_reportsEveryMatchingRuleInOnePass() {
+        Map<String, List<String>> rules = new LinkedHashMap<>();
+        rules.put("he", List.of("he"));
+        rules.put("she-or-his", List.of("she", "his"));
+        rules.put("hers", List.of("HERS"));
+        rules.put("never", List.of("xyz"));
+        AlertRuleFilter<String> filter = new AlertRuleFilter<>(rules, true, line -> line);
+
+        // "ushers" contains she, he and hers overlapping; only failure links find all three
+        assertEquals(List.of("he", "she-or-his", "hers"), filter.apply("USHERS").getRules());
+        assertEquals(List.of("she-or-his"), filter.apply("this").getRules());
+        assertNull(filter.apply("nothing to see"));
+    }
+
+    @Test
+    void testLogBatch_filtersAndCountsColumnsInPlace() throws InterruptedException {
+        BlockingQueue<String> raw = new LinkedBlockingQueue<>();
+        BlockingQueue<LogBatch> errors = new LinkedBlockingQueue<>();
+        raw.put("2024-01-07 10:00:00 INFO Starting application");
+        raw.put("2024-01-07 10:00:01 ERROR Database connection failed");
+        raw.put("not a log line");
+        raw.put("2024-01-07 10:00:02 WARN Retrying");
+        raw.put("2024-01-07 10:00:03 FATAL Giving up");
+
+        // Counts taken before filtering, checked here: an assertion in the worker would only kill it
+        BlockingQueue<List<Integer>> counted = new LinkedBlockingQueue<>();
+        DataPipeline<String, LogBatch> parse = DataPipeline.batched(raw, errors, batch -> {
+            LogBatch columns = LogBatch.parser().processBatch(batch).get(0);
+            counted.add(List.of(columns.getMalformedCount(), columns.countLevelAtLeast(LogLevel.ERROR)));
+            return List.of(columns.retainLevelAtLeast(LogLevel.ERROR));
+        }, 1, 16);
+        parse.start();
+        LogBatch batch = take(errors, 1).get(0);
+        parse.stop();
+
+        assertEquals(List.of(List.of(1, 2)), new ArrayList<>(counted), "One batch: 1 malformed, 2 at ERROR+");
+        assertEquals(2, batch.size());
+        assertEquals(LogLevel.ERROR, batch.level(0));
+        assertEquals("Database connection failed", batch.message(0));
+        assertEquals(LogLevel.FATAL, batch.level(1));
+        assertEquals("Giving up", batch.message(1)); // Message moved left over dropped rows
+        assertEquals(1704621603000L, batch.timestamp(1));
+        assertEquals(1, batch.countByLevel()[LogLevel.FATAL.ordinal()]);
+    }
+
+    @Test
+    void testLogBatch_survivesMalformedLines() {
+        List<String> lines = List.of(
+            "2024-01-07 10:00:00 INFO Starting application",
+            "2024-01-07 10:00:00.1",    // Truncated fraction: used to escape as StringIndexOutOfBounds
+            "2024-01-07 10:00:00.12 INFO",
+            "2024-01-07 10",
+            "",
+            "2024-13-07 10:00:00 ERROR month 13",
+            "2024-01-07 10:00:01.250 ERROR Database connection failed");
+
+        LogBatch batch = LogBatch.parser().processBatch(lines).get(0);
+
+        assertEquals(5, batch.getMalformedCount());
+        assertEquals(2, batch.size());
+        assertEquals("Starting application", batch.message(0));
+        assertEquals(LogLevel.ERROR, batch.level(1));
+        assertEquals("Database connection failed", batch.message(1));
+        assertEquals(1704621601250L, batch.timestamp(1));
+    }
+
+    @Test
+    void testWindowedAggregator_closesSlidingWindowsOnWatermark() {
+        // 10ms windows every 5ms, 2ms allowed lateness, event time = the value itself
+        WindowedAggregator<Long, String> windows =
+            WindowedAggregator.sliding(10, 5, 2, t -> t, t -> "k");
+
+        // 12 moves the watermark to 10: [-5,5) and [0,10) close
+        List<WindowResult<String>> closed = windows.processBatch(List.of(1L, 3L, 6L, 12L));
+        assertEquals(2, closed.size());
+        assertEquals(-5, closed.get(0).getWindowStart());
+        assertEquals(2, closed.get(0).getCount());
+        assertEquals(0, closed.get(1).getWindowStart());
+        assertEquals(3, closed.get(1).getCount());
+
+        // 4 only belongs to closed windows (late); 9 still fits [5,15)
+        assertTrue(windows.processBatch(List.of(4L, 9L)).isEmpty());
+        assertEquals(1, windows.getLateCount());
+
+        List<WindowResult<String>> rest = windows.flush();
+        assertEquals(2, rest.size());
+        assertEquals(5, rest.get(0).getWindowStart());
+        assertEquals(3, rest.get(0).getCount()); // 6, 12, 9
+        assertEquals(10, rest.get(1).getWindowStart());
+        assertEquals(1, rest.get(1).getCount()); // 12
+        assertEquals(0, windows.getOpenWindowCount());
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for FlowStage
+ */
+class FlowStageTest {
+
+    /**
+     * Upstream subscription that only records what the stage asked for.
+     */
+    private static final class RecordingSubscription implements Flow.Subscription {
+        final AtomicLong requested = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        @Override
+        public void request(long n) {
+            requested.addAndGet(n);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled.set(true);
+        }
+    }
+
+    /**
+     * Downstream subscriber that records every signal.
+     */
+    private static final class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        final List<T> items = new CopyOnWriteArrayList<>();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+    }
+
+    @Test
+    void testDemand_passesThroughOneForOne() {
+        FlowStage<Integer, Integer> evensTimesTen = new FlowStage<>(x -> x % 2 == 0 ? x * 10 : null);
+        RecordingSubscriber<Integer> down = new RecordingSubscriber<>();
+        RecordingSubscription up = new RecordingSubscription();
+
+        // Demand before the upstream exists is held and forwarded on subscribe
+        evensTimesTen.subscribe(down);
+        down.subscription.request(3);
+        evensTimesTen.onSubscribe(up);
+        assertEquals(3, up.requested.get());
+
+        evensTimesTen.onNext(2);
+        evensTimesTen.onNext(3); // Filtered: its unit of demand goes back upstream
+        evensTimesTen.onNext(4);
+        assertEquals(List.of(20, 40), down.items);
+        assertEquals(4, up.requested.get());
+
+        down.subscription.request(2);
+        assertEquals(6, up.requested.get());
+
+        evensTimesTen.onComplete();
+        assertTrue(down.completed);
+    }
+
+    @Test
+    void testDemand_slowSubscriberPacesThePublisher() throws InterruptedException {
+        SubmissionPublisher<Integer> source = new SubmissionPublisher<>();
+        FlowStage<Integer, Integer> doubled = new FlowStage<>(x -> x * 2);
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicInteger maxOutstanding = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+
+        source.subscribe(doubled);
+        doubled.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                outstanding.addAndGet(2);
+                subscription.request(2);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                assertTrue(outstanding.decrementAndGet() >= 0, "Sent more than requested");
+                if (received.incrementAndGet() % 2 == 0) {
+                    maxOutstanding.accumulateAndGet(outstanding.addAndGet(2), Math::max);
+                    subscription.request(2); // Ask for more only when ready
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            source.submit(i);
+        }
+        source.close();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(100, received.get());
+        assertTrue(maxOutstanding.get() <= 2, "Outstanding demand never exceeds the subscriber's");
+    }
+
+    @Test
+    void testDemand_longFilteredRunFromSynchronousPublisherDoesNotRecurse() {
+        int last = 200_000;
+        FlowStage<Integer, Integer> onlyLast = new FlowStage<>(x -> x == last ? x : null);
+        RecordingSubscriber<Integer> down = new RecordingSubscriber<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger depth = new AtomicInteger();
+        AtomicInteger maxDepth = new AtomicInteger();
+
+        onlyLast.subscribe(down);
+        down.subscription.request(1);
+        // Delivers items inside request(), like a publisher with items on hand
+        onlyLast.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+                for (long i = 0; i < n && next.get() <= last; i++) {
+                    onlyLast.onNext(next.getAndIncrement());
+                }
+                depth.decrementAndGet();
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+
+        assertEquals(List.of(last), down.items);
+        assertTrue(maxDepth.get() <= 2, "Nested request() depth was " + maxDepth.get());
+    }
+
+    @Test
+    void testOnNext_processorFailureDropsItemsAlreadyInFlight() {
+        FlowStage<Integer, Integer> stage = new FlowStage<>(x -> {
+            if (x == 2) {
+                throw new IllegalArgumentException("bad item");
+            }
+            return x;
+        });
+        RecordingSubscriber<Integer> down = new RecordingSubscriber<>();
+        RecordingSubscription up = new RecordingSubscription();
+        stage.onSubscribe(up);
+        stage.subscribe(down);
+        down.subscription.request(5);
+
+        stage.onNext(1);
+        stage.onNext(2);
+        stage.onNext(3); // Sent before the upstream saw the cancel
+        stage.onComplete();
+
+        assertInstanceOf(IllegalArgumentException.class, down.error);
+        assertTrue(up.cancelled.get());
+        assertEquals(List.of(1), down.items, "Rule 1.7: no onNext after onError");
+        assertFalse(down.completed);
+    }
+
+    @Test
+    void testRequest_nonPositiveSignalsErrorAndCancelsUpstream() throws InterruptedException {
+        FlowStage<Integer, Integer> stage = new FlowStage<>(x -> x);
+        RecordingSubscriber<Integer> down = new RecordingSubscriber<>();
+        RecordingSubscription up = new RecordingSubscription();
+        stage.onSubscribe(up);
+        stage.subscribe(down);
+
+        down.subscription.request(0);
+
+        assertTrue(down.terminated.await(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, down.error); // Rule 3.9
+        assertTrue(up.cancelled.get());
+        assertEquals(0, up.requested.get());
+    }
+
+    @Test
+    void testSubscribe_rejectsSecondSubscriber() {
+        FlowStage<Integer, Integer> stage = new FlowStage<>(x -> x);
+        RecordingSubscriber<Integer> first = new RecordingSubscriber<>();
+        RecordingSubscriber<Integer> second = new RecordingSubscriber<>();
+        RecordingSubscription up = new RecordingSubscription();
+        stage.onSubscribe(up);
+        stage.subscribe(first);
+
+        stage.subscribe(second);
+
+        assertNotNull(second.subscription, "onSubscribe comes before onError");
+        assertInstanceOf(IllegalStateException.class, second.error);
+        assertNull(first.error);
+        first.subscription.request(1);
+        stage.onNext(7);
+        assertEquals(List.of(7), first.items);
+        assertTrue(second.items.isEmpty());
+    }
+
+    @Test
+    void testCancel_stopsDeliveryAndCancelsUpstream() {
+        FlowStage<Integer, Integer> stage = new FlowStage<>(x -> x);
+        RecordingSubscriber<Integer> down = new RecordingSubscriber<>();
+        RecordingSubscription up = new RecordingSubscription();
+        stage.onSubscribe(up);
+        stage.subscribe(down);
+        down.subscription.request(5);
+        stage.onNext(1);
+
+        down.subscription.cancel();
+        stage.onNext(2); // Already in flight upstream: dropped
+        down.subscription.request(5);
+
+        assertTrue(up.cancelled.get());
+        assertEquals(List.of(1), down.items);
+        assertEquals(5, up.requested.get(), "No demand after cancel");
+
+        // Cancelled before the upstream arrives: it is cancelled on arrival
+        FlowStage<Integer, Integer> early = new FlowStage<>(x -> x);
+        RecordingSubscriber<Integer> earlyDown = new RecordingSubscriber<>();
+        early.subscribe(earlyDown);
+        earlyDown.subscription.cancel();
+        RecordingSubscription lateUp = new RecordingSubscription();
+        early.onSubscribe(lateUp);
+        assertTrue(lateUp.cancelled.get());
+    }
+}
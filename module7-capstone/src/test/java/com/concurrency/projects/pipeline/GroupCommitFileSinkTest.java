@@ -0,0 +1,216 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for GroupCommitFileSink
+ */
+class GroupCommitFileSinkTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Real file channel that counts force() calls and can hold or fail them.
+     */
+    private static final class WatchedChannel extends FileChannel {
+        final FileChannel delegate;
+        final AtomicInteger forces = new AtomicInteger();
+        final CountDownLatch forcing = new CountDownLatch(1);
+        volatile CountDownLatch release; // force() waits on it if set
+        volatile IOException failure;     // force() throws it if set
+
+        WatchedChannel(Path file) throws IOException {
+            this.delegate = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            forcing.countDown();
+            CountDownLatch gate = release;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            forces.incrementAndGet();
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static GroupCommitFileSink<String> sink(WatchedChannel channel, int maxGroupRecords,
+                                                    long maxDelayMillis) throws IOException {
+        return new GroupCommitFileSink<>(channel, "group-commit-test",
+            line -> (line + "\n").getBytes(StandardCharsets.UTF_8),
+            maxGroupRecords, 1 << 20, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void testWrite_groupsConcurrentRecordsIntoOneForce() throws Exception {
+        Path file = dir.resolve("grouped.log");
+        WatchedChannel channel = new WatchedChannel(file);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try (GroupCommitFileSink<String> sink = sink(channel, 10, 2_000)) {
+            // The group fills up long before maxDelay expires
+            for (int i = 0; i < 10; i++) {
+                futures.add(sink.write("record-" + i));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+            assertEquals(1, channel.forces.get());
+            assertEquals(1, sink.getGroupsCommitted());
+            assertEquals(10, sink.getRecordsCommitted());
+        }
+        assertEquals(10, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void testWrite_futureCompletesOnlyAfterForce() throws Exception {
+        WatchedChannel channel = new WatchedChannel(dir.resolve("held.log"));
+        channel.release = new CountDownLatch(1);
+        try (GroupCommitFileSink<String> sink = sink(channel, 1, 0)) {
+            CompletableFuture<Void> committed = sink.write("only");
+
+            assertTrue(channel.forcing.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            assertFalse(committed.isDone(), "Written but not yet forced: not durable");
+
+            channel.release.countDown();
+            committed.get(5, TimeUnit.SECONDS);
+            assertEquals(1, channel.forces.get());
+        }
+    }
+
+    @Test
+    void testWrite_failedForceFailsEveryPendingRecord() throws Exception {
+        WatchedChannel channel = new WatchedChannel(dir.resolve("failed.log"));
+        channel.failure = new IOException("disk gone");
+        try (GroupCommitFileSink<String> sink = sink(channel, 5, 2_000)) {
+            List<CompletableFuture<Void>> group = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                group.add(sink.write("record-" + i));
+            }
+
+            for (CompletableFuture<Void> future : group) {
+                ExecutionException failed = assertThrows(ExecutionException.class,
+                    () -> future.get(5, TimeUnit.SECONDS));
+                assertSame(channel.failure, failed.getCause());
+            }
+            // No retry after a failed force: later writes fail straight away
+            ExecutionException later = assertThrows(ExecutionException.class,
+                () -> sink.write("after").get(5, TimeUnit.SECONDS));
+            assertSame(channel.failure, later.getCause());
+            assertEquals(0, sink.getRecordsCommitted());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for LogLineParser
+ */
+class LogLineParserTest {
+
+    private final LogLineParser.Line line = new LogLineParser.Line();
+
+    private void assertMalformed(String raw) {
+        assertThrows(IllegalArgumentException.class, () -> LogLineParser.UTC.parse(raw, line), raw);
+    }
+
+    @Test
+    void testParse_readsTimestampLevelAndMessageInPlace() {
+        LogLineParser.UTC.parse("2024-01-07 10:00:01.250 ERROR Database down", line);
+
+        assertEquals(Instant.parse("2024-01-07T10:00:01.250Z").toEpochMilli(), line.epochMillis());
+        assertEquals(LogLevel.ERROR, line.level());
+        assertEquals("Database down", line.message());
+
+        new LogLineParser(ZoneOffset.ofHours(2)).parse("2024-01-07 10:00:00 INFO x", line);
+        assertEquals(Instant.parse("2024-01-07T08:00:00Z").toEpochMilli(), line.epochMillis());
+    }
+
+    @Test
+    void testParse_levelsWithAndWithoutMessage() {
+        LogLineParser.UTC.parse("2024-01-07 10:00:00 WARN", line);
+        assertEquals(LogLevel.WARN, line.level());
+        assertEquals("", line.message());
+
+        LogLineParser.UTC.parse("2024-01-07 10:00:00 NOTICE disk 91% full", line);
+        assertEquals(LogLevel.UNKNOWN, line.level());
+        assertEquals("disk 91% full", line.message());
+
+        LogLineParser.UTC.parse("2024-01-07 10:00:00 info lower case", line);
+        assertEquals(LogLevel.UNKNOWN, line.level());
+    }
+
+    @Test
+    void testParse_rejectsMalformedTimestamps() {
+        assertMalformed("");
+        assertMalformed("garbage");
+        assertMalformed("2024-01-07T10:00:00 INFO wrong separator");
+        assertMalformed("20x4-01-07 10:00:00 INFO not a digit");
+        assertMalformed("2024-13-07 10:00:00 INFO month 13");
+        assertMalformed("2024-01-00 10:00:00 INFO day 0");
+        assertMalformed("2024-01-07 24:00:00 INFO hour 24");
+        assertMalformed("2024-01-07 10:00:00.1x3 INFO bad fraction");
+        assertMalformed("2024-01-07 10:00:00,123 INFO comma fraction");
+    }
+
+    @Test
+    void testParse_rejectsTruncatedLines() {
+        assertMalformed("2024-01-07 10:00");
+        assertMalformed("2024-01-07 10:00:00");     // No level
+        assertMalformed("2024-01-07 10:00:00 ");    // Empty level
+        assertMalformed("2024-01-07 10:00:00.");
+        assertMalformed("2024-01-07 10:00:00.1");   // Used to throw StringIndexOutOfBounds
+        assertMalformed("2024-01-07 10:00:00.12");
+        assertMalformed("2024-01-07 10:00:00.123"); // Fraction but no level
+    }
+
+    @Test
+    void testParse_staysInsideSubRange() {
+        String text = ">>2024-01-07 10:00:00.123 INFO hello|2024-01-07 10:00:00.999 WARN";
+        int start = 2;
+        int end = text.indexOf('|');
+
+        LogLineParser.UTC.parse(text, start, end, line);
+        assertEquals(LogLevel.INFO, line.level());
+        assertEquals("hello", line.message());
+        assertEquals(123, line.epochMillis() % 1000);
+
+        // The range ends inside the fraction; the digits after it must not be read
+        int second = end + 1;
+        assertThrows(IllegalArgumentException.class,
+            () -> LogLineParser.UTC.parse(text, second, second + 21, line));
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> LogLineParser.UTC.parse(text, second, text.length() + 1, line));
+    }
+}
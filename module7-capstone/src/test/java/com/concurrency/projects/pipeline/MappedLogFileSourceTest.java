@@ -0,0 +1,103 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MappedLogFileSource
+ */
+class MappedLogFileSourceTest {
+
+    @TempDir
+    Path dir;
+
+    private List<String> feed(MappedLogFileSource source) throws Exception {
+        LinkedBlockingQueue<String> out = new LinkedBlockingQueue<>();
+        long fed = source.feed(out);
+        List<String> lines = new ArrayList<>(out);
+        assertEquals(fed, lines.size());
+        return lines;
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testFeed_stripsCrLfAndSkipsBlankLines() throws Exception {
+        Path file = write("crlf.log", "first\r\nsecond\r\n\r\nthird");
+
+        assertEquals(List.of("first", "second", "third"), feed(new MappedLogFileSource(file, 1)));
+    }
+
+    @Test
+    void testFeed_joinsLinesSpanningWindowBoundaries() throws Exception {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String line = "line-" + i + (i % 3 == 0 ? "-ünïcode" : "");
+            expected.add(line);
+            content.append(line).append('\n');
+        }
+        Path file = write("windows.log", content.toString());
+
+        // 24-byte windows (longest line is 17): most lines cross one
+        assertEquals(expected, feed(new MappedLogFileSource(file, 1, 24)));
+    }
+
+    @Test
+    void testFeed_skipsAndCountsOverlongLines() throws Exception {
+        Path file = write("long.log", "before\n" + "x".repeat(40) + "\nafter\n" + "y".repeat(50));
+        MappedLogFileSource source = new MappedLogFileSource(file, 1, 16);
+
+        assertEquals(List.of("before", "after"), feed(source));
+        assertEquals(2, source.getSkippedLines());
+
+        Path big = write("big.log", "ok\n" + "z".repeat(MappedLogFileSource.MAX_LINE + 1) + "\nstill ok\n");
+        MappedLogFileSource real = new MappedLogFileSource(big, 1);
+        assertEquals(List.of("ok", "still ok"), feed(real));
+        assertEquals(1, real.getSkippedLines());
+    }
+
+    @Test
+    void testSplitRanges_coversFileAtLineStarts() throws Exception {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String line = "record " + i + " " + "p".repeat(i % 17);
+            expected.add(line);
+            content.append(line).append('\n');
+        }
+        Path file = write("ranges.log", content.toString());
+        byte[] bytes = Files.readAllBytes(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> ranges = MappedLogFileSource.splitRanges(channel, 4);
+            assertEquals(4, ranges.size());
+            long expectedStart = 0;
+            for (long[] range : ranges) {
+                assertEquals(expectedStart, range[0], "Ranges must be contiguous");
+                assertTrue(range[0] == 0 || bytes[(int) range[0] - 1] == '\n', "Range starts mid-line");
+                expectedStart = range[1];
+            }
+            assertEquals(bytes.length, expectedStart);
+        }
+
+        // Ranges interleave, but every line arrives exactly once
+        List<String> lines = feed(new MappedLogFileSource(file, 4, 64));
+        lines.sort(null);
+        expected.sort(null);
+        assertEquals(expected, lines);
+    }
+}
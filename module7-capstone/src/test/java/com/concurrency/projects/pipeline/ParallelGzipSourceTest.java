@@ -0,0 +1,166 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ParallelGzipSource
+ */
+class ParallelGzipSourceTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * One gzip member per part, concatenated like `cat a.gz b.gz`.
+     */
+    private Path members(String... parts) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        for (String part : parts) {
+            file.write(gzip(part));
+        }
+        return Files.write(dir.resolve("input.gz"), file.toByteArray());
+    }
+
+    private static List<String> feed(ParallelGzipSource source) throws Exception {
+        LinkedBlockingQueue<String> out = new LinkedBlockingQueue<>();
+        long fed = source.feed(out);
+        List<String> lines = new ArrayList<>(out);
+        assertEquals(lines.size(), fed);
+        return lines;
+    }
+
+    private static String numberedLines(int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            text.append("line-").append(i).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static List<String> expectedLines(int from, int to) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            lines.add("line-" + i);
+        }
+        return lines;
+    }
+
+    @Test
+    void testFeed_singleMember() throws Exception {
+        Path file = members("first\r\nsecond\n\nthird");
+
+        assertEquals(List.of("first", "second", "third"), feed(new ParallelGzipSource(file, 2)));
+    }
+
+    @Test
+    void testFeed_manyMembersComeOutInFileOrder() throws Exception {
+        String[] parts = new String[50];
+        for (int m = 0; m < parts.length; m++) {
+            parts[m] = numberedLines(m * 100, (m + 1) * 100);
+        }
+        Path file = members(parts);
+
+        assertEquals(expectedLines(0, 5000), feed(new ParallelGzipSource(file, 4)));
+    }
+
+    @Test
+    void testFeed_stitchesLinesCutAcrossMembers() throws Exception {
+        // "beta" spans three members; the middle one has no '\n' at all
+        Path file = members("alpha\nbe", "t", "a\ngamma\n", "delta");
+
+        assertEquals(List.of("alpha", "beta", "gamma", "delta"), feed(new ParallelGzipSource(file, 3)));
+    }
+
+    @Test
+    void testFeed_streamsMembersTooBigToBuffer() throws Exception {
+        // 64 bytes of buffer: every member is inflated again by the feeding thread
+        Path file = members(numberedLines(0, 3000), "cut acr", "oss\n" + numberedLines(3000, 6000));
+        ParallelGzipSource source = new ParallelGzipSource(file, 2, 64);
+
+        List<String> expected = new ArrayList<>(expectedLines(0, 3000));
+        expected.add("cut across");
+        expected.addAll(expectedLines(3000, 6000));
+        assertEquals(expected, feed(source));
+    }
+
+    @Test
+    void testFeed_ignoresTrailingBytes() throws Exception {
+        byte[] members = Files.readAllBytes(members("one\n", "two\n"));
+        // Zero padding, then garbage that happens to contain the header magic
+        byte[] trailing = {0, 0, 0, 0, 'x', 0x1f, (byte) 0x8b, 8, 'y', 'z'};
+        byte[] padded = new byte[members.length + trailing.length];
+        System.arraycopy(members, 0, padded, 0, members.length);
+        System.arraycopy(trailing, 0, padded, members.length, trailing.length);
+        Path file = Files.write(dir.resolve("padded.gz"), padded);
+        ParallelGzipSource source = new ParallelGzipSource(file, 2);
+
+        assertEquals(List.of("one", "two"), feed(source));
+        assertEquals(trailing.length, source.getTrailingBytes());
+    }
+
+    @Test
+    void testFeed_skipsLinesOverMaxLine() throws Exception {
+        int overLimit = MappedLogFileSource.MAX_LINE + 1000;
+        String half = "y".repeat(overLimit / 2 + 1);
+        Path file = members(
+            "a\n" + "x".repeat(overLimit) + "\nb\n", // Inside one member
+            "c\n" + half, half + "\nd\n",             // Cut across two members
+            "z".repeat(overLimit) + "\ne",             // A member's head alone
+            "\n" + "w".repeat(overLimit));             // Last line, no '\n'
+
+        // Buffered by workers, then streamed by the feeding thread
+        for (ParallelGzipSource source : List.of(
+                new ParallelGzipSource(file, 2), new ParallelGzipSource(file, 2, 64))) {
+            assertEquals(List.of("a", "b", "c", "d", "e"), feed(source));
+            assertEquals(4, source.getSkippedLines());
+        }
+    }
+
+    @Test
+    void testFeed_rejectsTruncatedHeader() throws Exception {
+        byte[] unterminatedName = {0x1f, (byte) 0x8b, 8, 0x08, 0, 0, 0, 0, 0, 3, 'a', '.', 'l', 'o', 'g'};
+        byte[] cutShort = {0x1f, (byte) 0x8b, 8, 0, 0};
+
+        for (byte[] header : List.of(unterminatedName, cutShort)) {
+            Path file = Files.write(dir.resolve("truncated.gz"), header);
+            IOException failed = assertThrows(IOException.class,
+                () -> feed(new ParallelGzipSource(file, 2)));
+            assertTrue(failed.getMessage().startsWith("Corrupt gzip member at offset 0"));
+            assertEquals("Truncated gzip header", failed.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void testFeed_rejectsCorruptMemberAndNonGzipInput() throws Exception {
+        byte[] corrupt = gzip("some text that will not survive\n");
+        corrupt[corrupt.length - 8] ^= 1; // Flip a CRC bit
+        Path corruptFile = Files.write(dir.resolve("corrupt.gz"), corrupt);
+        IOException failed = assertThrows(IOException.class,
+            () -> feed(new ParallelGzipSource(corruptFile, 2)));
+        assertTrue(failed.getMessage().startsWith("Corrupt gzip member at offset 0"));
+
+        Path plain = Files.writeString(dir.resolve("plain.txt"), "not compressed\n");
+        assertThrows(IOException.class, () -> feed(new ParallelGzipSource(plain, 2)));
+    }
+}
@@ -0,0 +1,151 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for RingBufferQueue
+ */
+class RingBufferQueueTest {
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void testOfferAndPoll_fullAndEmpty() {
+        RingBufferQueue<String> queue = new RingBufferQueue<>(3, WaitStrategy.BUSY_SPIN);
+        assertEquals(4, queue.getCapacity(), "Rounded up to a power of two");
+        assertEquals(2, new RingBufferQueue<>(1, WaitStrategy.BUSY_SPIN).getCapacity());
+
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer("e" + i));
+        }
+        assertFalse(queue.offer("e4"), "Full");
+        assertEquals(4, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals("e0", queue.peek());
+        assertEquals(List.of("e0", "e1", "e2", "e3"), new ArrayList<>(queue));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("e" + i, queue.poll());
+        }
+        assertNull(queue.poll(), "Empty again");
+        assertTrue(queue.isEmpty());
+        assertThrows(NullPointerException.class, () -> queue.offer(null));
+    }
+
+    @Test
+    void testWrapAround_keepsFifoOverManyLaps() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(4, WaitStrategy.BUSY_SPIN);
+        int written = 0;
+        int next = 0;
+        // Up to three in, two out: the window slides around the slots many times
+        for (int i = 0; i < 10_000; i++) {
+            for (int j = 0; j < 3 && queue.remainingCapacity() > 0; j++) {
+                assertTrue(queue.offer(written++));
+            }
+            for (int j = 0; j < 2; j++) {
+                Integer e = queue.poll();
+                if (e != null) {
+                    assertEquals(next++, e);
+                }
+            }
+        }
+        List<Integer> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (Integer e : rest) {
+            assertEquals(next++, e);
+        }
+        assertEquals(written, next);
+        assertTrue(written > 10_000);
+    }
+
+    @Test
+    void testTimedOfferAndPoll_giveUpAfterTimeout() throws Exception {
+        RingBufferQueue<String> queue = new RingBufferQueue<>(2, WaitStrategy.PARK);
+
+        long start = System.nanoTime();
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        queue.put("a");
+        queue.put("b");
+        start = System.nanoTime();
+        assertFalse(queue.offer("c", 50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        // Room made by another thread while offer() waits
+        Future<String> taken = threads.submit(() -> {
+            Thread.sleep(20);
+            return queue.take();
+        });
+        assertTrue(queue.offer("c", 5, TimeUnit.SECONDS));
+        assertEquals("a", taken.get(5, TimeUnit.SECONDS));
+        assertEquals("b", queue.poll(1, TimeUnit.SECONDS));
+        assertEquals("c", queue.poll(1, TimeUnit.SECONDS));
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> queue.take());
+        assertFalse(Thread.interrupted(), "The interrupt is consumed by the exception");
+    }
+
+    @Test
+    void testMultipleProducersAndConsumers_deliverEveryElementOnce() throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 25_000;
+        int total = producers * perProducer;
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(64, WaitStrategy.YIELD);
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        AtomicInteger received = new AtomicInteger();
+
+        List<Future<?>> running = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            running.add(threads.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.put(first + i);
+                }
+                return null;
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            running.add(threads.submit(() -> {
+                while (received.get() < total) {
+                    Integer e = queue.poll(10, TimeUnit.MILLISECONDS);
+                    if (e != null) {
+                        seen.incrementAndGet(e);
+                        received.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : running) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(total, received.get());
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, seen.get(i), "Element " + i);
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
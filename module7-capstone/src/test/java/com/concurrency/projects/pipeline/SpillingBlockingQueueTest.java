@@ -0,0 +1,166 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SpillingBlockingQueue
+ */
+class SpillingBlockingQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    @Test
+    void testSpill_keepsFifoOrderAcrossSpillAndRefill() throws Exception {
+        try (SpillingBlockingQueue<String> queue = new SpillingBlockingQueue<>(10, dir, SpillCodec.utf8())) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                queue.put("r" + i);
+                expected.add("r" + i);
+            }
+            assertEquals(90, queue.getSpilledCount());
+
+            // Interleave: new puts while spilled must queue behind the spill
+            List<String> taken = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                taken.add(queue.take());
+            }
+            for (int i = 100; i < 120; i++) {
+                queue.put("r" + i);
+                expected.add("r" + i);
+            }
+            while (!queue.isEmpty()) {
+                taken.add(queue.poll(1, TimeUnit.SECONDS));
+            }
+
+            assertEquals(expected, taken);
+            assertEquals(0, queue.getSpilledCount());
+            assertEquals(0, segmentFiles(), "Spill files are deleted once read back");
+        }
+    }
+
+    @Test
+    void testSpill_rollsOverSegmentsAndDeletesReadOnes() throws Exception {
+        // "rNN" encodes to 4 + 3 bytes: 5 records per 35-byte segment
+        try (SpillingBlockingQueue<String> queue =
+                 new SpillingBlockingQueue<>(1, dir, SpillCodec.utf8(), 1 << 20, 35)) {
+            for (int i = 10; i < 41; i++) {
+                queue.put("r" + i);
+            }
+            assertEquals(6, segmentFiles());
+
+            for (int i = 10; i < 26; i++) {
+                assertEquals("r" + i, queue.take());
+            }
+            assertTrue(segmentFiles() < 6, "Fully read segments are deleted");
+
+            for (int i = 26; i < 41; i++) {
+                assertEquals("r" + i, queue.take());
+            }
+            assertEquals(0, segmentFiles());
+        }
+    }
+
+    @Test
+    void testSpill_blocksOnceMaxSpillBytesIsReached() throws Exception {
+        try (SpillingBlockingQueue<String> queue = new SpillingBlockingQueue<>(2, dir, SpillCodec.utf8(), 14)) {
+            assertEquals(3, queue.remainingCapacity()); // Two in memory, then one spill
+            queue.put("a0");
+            queue.put("a1");
+            queue.put("a2"); // 6 bytes on disk
+            queue.put("a3"); // 12 bytes: still under budget
+            assertEquals(1, queue.remainingCapacity());
+            queue.put("a4"); // 18 bytes: over budget from now on
+            assertEquals(0, queue.remainingCapacity());
+
+            assertFalse(queue.offer("x"));
+            assertFalse(queue.offer("x", 50, TimeUnit.MILLISECONDS));
+
+            CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> {
+                try {
+                    queue.put("a5");
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(100);
+            assertFalse(blocked.isDone(), "put() must block while the spill is full");
+
+            assertEquals("a0", queue.take());
+            assertEquals("a1", queue.take());
+            assertEquals("a2", queue.take()); // Refill frees disk budget
+            blocked.get(5, TimeUnit.SECONDS);
+
+            List<String> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            assertEquals(List.of("a3", "a4", "a5"), rest);
+        }
+    }
+
+    @Test
+    void testRemove_searchesOnlyTheInMemoryPart() throws Exception {
+        try (SpillingBlockingQueue<String> queue = new SpillingBlockingQueue<>(4, dir, SpillCodec.utf8())) {
+            for (int i = 0; i < 10; i++) {
+                queue.put("r" + i); // r0..r3 in memory, r4..r9 spilled
+            }
+
+            assertTrue(queue.remove("r1"));
+            assertFalse(queue.remove("r1"));
+            assertFalse(queue.remove("r7"), "Spilled elements are not searched");
+            assertTrue(queue.removeIf(e -> e.equals("r2")));
+            assertTrue(queue.removeAll(List.of("r3", "r8")));
+            assertEquals(6, queue.getSpilledCount());
+
+            List<String> taken = new ArrayList<>();
+            queue.drainTo(taken);
+            assertEquals(List.of("r0", "r4", "r5", "r6", "r7", "r8", "r9"), taken);
+
+            for (int i = 0; i < 4; i++) {
+                queue.put("s" + i);
+            }
+            assertTrue(queue.retainAll(List.of("s0", "s3")));
+            assertEquals(List.of("s0", "s3"), List.of(queue.take(), queue.take()));
+        }
+    }
+
+    @Test
+    void testClose_deletesSegmentsAndRejectsPuts() throws Exception {
+        SpillingBlockingQueue<String> first = new SpillingBlockingQueue<>(1, dir, SpillCodec.utf8());
+        SpillingBlockingQueue<String> second = new SpillingBlockingQueue<>(1, dir, SpillCodec.utf8());
+        for (int i = 0; i < 10; i++) {
+            first.put("first-" + i);
+            second.put("second-" + i);
+        }
+        assertEquals(2, segmentFiles(), "Queues sharing a directory get their own files");
+
+        first.close();
+        assertEquals(1, segmentFiles());
+        assertThrows(IllegalStateException.class, () -> first.put("late"));
+        assertEquals(0, first.getSpilledCount());
+
+        // The other queue's spill is untouched
+        for (int i = 0; i < 10; i++) {
+            assertEquals("second-" + i, second.take());
+        }
+        second.close();
+        assertEquals(0, segmentFiles());
+    }
+}
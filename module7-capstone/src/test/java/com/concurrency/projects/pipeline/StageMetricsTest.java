@@ -0,0 +1,36 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for StageMetrics
+ */
+class StageMetricsTest {
+
+    @Test
+    void testEstimatedQueueWait_readingDoesNotMoveTheWindow() throws InterruptedException {
+        LinkedBlockingQueue<Integer> in = new LinkedBlockingQueue<>();
+        StageMetrics metrics = new StageMetrics(in, new LinkedBlockingQueue<>(), () -> 1);
+        assertEquals(0, metrics.getEstimatedQueueWaitNanos(), "No backlog, no wait");
+
+        for (int i = 0; i < 10; i++) {
+            in.put(i);
+        }
+        assertEquals(Long.MAX_VALUE, metrics.getEstimatedQueueWaitNanos(), "Nothing drained yet");
+
+        metrics.recordsIn.add(50);
+        long first = metrics.getEstimatedQueueWaitNanos();
+        long second = metrics.getEstimatedQueueWaitNanos();
+        assertTrue(first > 0 && first < Long.MAX_VALUE);
+        // A getter that re-sampled would now see 0 records over ~0ns: "never drains"
+        assertTrue(second >= first && second < Long.MAX_VALUE);
+
+        // No more records drained: the rate decays and the wait grows
+        Thread.sleep(20);
+        assertTrue(metrics.getEstimatedQueueWaitNanos() > second);
+    }
+}
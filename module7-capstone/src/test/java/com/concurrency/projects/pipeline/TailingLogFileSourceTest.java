@@ -0,0 +1,181 @@
+package com.concurrency.projects.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TailingLogFileSource
+ */
+class TailingLogFileSourceTest {
+
+    @TempDir
+    Path dir;
+
+    private final ExecutorService followers = Executors.newCachedThreadPool();
+    private final LinkedBlockingQueue<String> out = new LinkedBlockingQueue<>();
+
+    @AfterEach
+    void shutdown() {
+        followers.shutdownNow();
+    }
+
+    private Future<Void> follow(TailingLogFileSource source) {
+        return followers.submit(() -> {
+            source.follow(out);
+            return null;
+        });
+    }
+
+    private List<String> take(int count) throws InterruptedException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String line = out.poll(5, TimeUnit.SECONDS);
+            assertNotNull(line, "Timed out after " + lines);
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static void append(Path file, String text) throws Exception {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void testFollow_finishesRotatedFileThenReadsNewOne() throws Exception {
+        Path log = dir.resolve("app.log");
+        append(log, "one\ntwo\n");
+        TailingLogFileSource source = new TailingLogFileSource(log, dir.resolve("app.checkpoint"), 1, TimeUnit.HOURS);
+        Future<Void> following = follow(source);
+        assertEquals(List.of("one", "two"), take(2));
+
+        // Last lines of the old file land just before it is renamed away
+        append(log, "three\nfour");
+        Files.move(log, dir.resolve("app.log.1"));
+        append(log, "new-one\n");
+
+        assertEquals(List.of("three", "four", "new-one"), take(3));
+        source.stop();
+        following.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testFollow_restartsAfterTruncation() throws Exception {
+        Path log = dir.resolve("app.log");
+        append(log, "a fairly long line before copytruncate\n");
+        TailingLogFileSource source = new TailingLogFileSource(log, dir.resolve("app.checkpoint"), 1, TimeUnit.HOURS);
+        Future<Void> following = follow(source);
+        assertEquals(List.of("a fairly long line before copytruncate"), take(1));
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        }
+        append(log, "short\n");
+
+        assertEquals(List.of("short"), take(1));
+        source.stop();
+        following.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testFollow_resumesFromCheckpoint() throws Exception {
+        Path log = dir.resolve("app.log");
+        Path checkpoint = dir.resolve("app.checkpoint");
+        append(log, "one\ntwo\npartial");
+
+        TailingLogFileSource first = new TailingLogFileSource(log, checkpoint, 1, TimeUnit.HOURS);
+        Future<Void> following = follow(first);
+        assertEquals(List.of("one", "two"), take(2));
+        first.stop();
+        following.get(5, TimeUnit.SECONDS);
+        assertEquals(8, first.getPosition()); // Just after "two\n": the partial line isn't done
+
+        append(log, "-line\nthree\n");
+        TailingLogFileSource second = new TailingLogFileSource(log, checkpoint, 1, TimeUnit.HOURS);
+        following = follow(second);
+        assertEquals(List.of("partial-line", "three"), take(2), "No line is emitted twice");
+        second.stop();
+        following.get(5, TimeUnit.SECONDS);
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    void testFollow_skipsOverlongLineAndKeepsTailing() throws Exception {
+        Path log = dir.resolve("app.log");
+        append(log, "before\n");
+        TailingLogFileSource source = new TailingLogFileSource(log, dir.resolve("app.checkpoint"), 1, TimeUnit.HOURS);
+        Future<Void> following = follow(source);
+        assertEquals(List.of("before"), take(1));
+
+        // Over MAX_LINE (1 MB), written in pieces so it also spans several polls
+        String chunk = "x".repeat(300_000);
+        for (int i = 0; i < 4; i++) {
+            append(log, chunk);
+        }
+        append(log, "\nafter\n");
+
+        assertEquals(List.of("after"), take(1));
+        assertEquals(1, source.getSkippedLines());
+        assertTrue(source.isRunning());
+        source.stop();
+        following.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testFollow_checkpointFailureDoesNotMaskOriginalError() throws Exception {
+        Path log = dir.resolve("app.log");
+        append(log, "one\n");
+        // The final checkpoint can't be written: its directory doesn't exist
+        TailingLogFileSource source = new TailingLogFileSource(
+            log, dir.resolve("missing").resolve("app.checkpoint"), 1, TimeUnit.HOURS);
+
+        IllegalStateException rejected = new IllegalStateException("pipeline shut down");
+        LinkedBlockingQueue<String> closedQueue = new LinkedBlockingQueue<>() {
+            @Override
+            public void put(String line) {
+                throw rejected;
+            }
+        };
+
+        IllegalStateException failed = assertThrows(IllegalStateException.class,
+            () -> source.follow(closedQueue));
+        assertSame(rejected, failed);
+        assertEquals(1, failed.getSuppressed().length);
+        assertInstanceOf(NoSuchFileException.class, failed.getSuppressed()[0]);
+    }
+
+    @Test
+    void testIsRotated_fallsBackToCreationTimeAndSizeWithoutFileKeys() {
+        FileTime created = FileTime.fromMillis(1_000);
+        FileTime recreated = FileTime.fromMillis(2_000);
+
+        // File keys decide when the filesystem has them
+        assertFalse(TailingLogFileSource.isRotated("inode-1", created, 100, "inode-1", recreated, 50));
+        assertTrue(TailingLogFileSource.isRotated("inode-1", created, 100, "inode-2", created, 500));
+
+        // No file keys (e.g. Windows): same creation time and not shorter = same file
+        assertFalse(TailingLogFileSource.isRotated(null, created, 100, null, created, 100));
+        assertTrue(TailingLogFileSource.isRotated(null, created, 100, null, recreated, 500));
+        assertTrue(TailingLogFileSource.isRotated(null, created, 100, null, created, 20));
+
+        assertNotEquals(TailingLogFileSource.identity(null, created),
+                        TailingLogFileSource.identity(null, recreated));
+    }
+}